@@ -16,10 +16,14 @@ import com.zendesk.maxwell.replication.Replicator;
 import com.zendesk.maxwell.schema.MysqlPositionStore;
 import com.zendesk.maxwell.schema.MysqlSchemaStore;
 import com.zendesk.maxwell.schema.SchemaStoreSchema;
+import com.zendesk.maxwell.schema.columndef.GeometryColumnDef;
+import com.zendesk.maxwell.schema.columndef.StringColumnDef;
 import com.zendesk.maxwell.util.Logging;
+import com.zendesk.maxwell.util.SegmentedSpillStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -32,6 +36,9 @@ public class Maxwell implements Runnable {
 
 	public Maxwell(MaxwellConfig config) throws SQLException {
 		this.config = config;
+		SegmentedSpillStore.configure(config.spillDirectory == null ? null : new File(config.spillDirectory), config.spillQuota);
+		StringColumnDef.configureBinaryOutput(config.outputBinaryEncoding, config.outputBinaryMaxBytes);
+		GeometryColumnDef.configureOutput(config.outputGeometryFormat);
 		this.context = new MaxwellContext(this.config);
 		this.context.probeConnections();
 	}
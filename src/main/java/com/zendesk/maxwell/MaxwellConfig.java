@@ -5,7 +5,10 @@ import com.zendesk.maxwell.producer.AbstractProducer;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.columndef.GeometryColumnDef;
+import com.zendesk.maxwell.schema.columndef.StringColumnDef;
 import com.zendesk.maxwell.util.AbstractConfig;
+import com.zendesk.maxwell.util.RingBuffer;
 import joptsimple.BuiltinHelpFormatter;
 import joptsimple.OptionDescriptor;
 import joptsimple.OptionParser;
@@ -14,6 +17,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +28,7 @@ public class MaxwellConfig extends AbstractConfig {
 	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellConfig.class);
 
 	public static final String GTID_MODE_ENV = "GTID_MODE";
+	public static final int DEFAULT_EVENT_BUFFER_SIZE = 128;
 
 	public MaxwellMysqlConfig replicationMysql;
 	public MaxwellMysqlConfig schemaMysql;
@@ -32,6 +37,12 @@ public class MaxwellConfig extends AbstractConfig {
 	public MaxwellFilter filter;
 	public Boolean shykoMode;
 	public Boolean gtidMode;
+	public int decodeThreads;
+	public int eventBufferSize;
+	public RingBuffer.WaitStrategy eventBufferWaitStrategy;
+	public boolean streamTransactions;
+	public String spillDirectory;
+	public long spillQuota;
 
 	public String databaseName;
 
@@ -48,18 +59,25 @@ public class MaxwellConfig extends AbstractConfig {
 	public String kafkaPartitionKey;
 	public String kafkaPartitionColumns;
 	public String kafkaPartitionFallback;
+	public int kafkaProducerThreads;
+	public boolean kafkaFlushTransactions;
 	public String bootstrapperType;
 	public int bufferedProducerSize;
 
 	public String producerPartitionKey;
 	public String producerPartitionColumns;
 	public String producerPartitionFallback;
+	public long producerInflightMessages;
+	public long producerInflightBytes;
 
 	public String kinesisStream;
 	public boolean kinesisMd5Keys;
 
 	public String outputFile;
 	public MaxwellOutputConfig outputConfig;
+	public StringColumnDef.BinaryEncoding outputBinaryEncoding;
+	public long outputBinaryMaxBytes;
+	public GeometryColumnDef.GeometryFormat outputGeometryFormat;
 	public String log_level;
 
 	public MaxwellMetrics maxwellMetrics;
@@ -116,6 +134,12 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "password", "password for host" ).withOptionalArg();
 		parser.accepts( "jdbc_options", "additional jdbc connection options" ).withOptionalArg();
 		parser.accepts( "binlog_connector", "run with new binlog connector library" ).withRequiredArg();
+		parser.accepts( "decode_threads", "number of threads that decode rows ahead of the producer with binlog_connector. default: 1" ).withRequiredArg();
+		parser.accepts( "event_buffer_size", "number of binlog events buffered between the binlog reader and maxwell. default: 128" ).withRequiredArg();
+		parser.accepts( "event_buffer_wait", "how threads wait on the binlog event buffer: spin|yield|park. default: park" ).withRequiredArg();
+		parser.accepts( "stream_transactions", "output rows before their transaction commits, followed by a commit marker (binlog_connector only). default: false" ).withOptionalArg();
+		parser.accepts( "spill_directory", "where to spill transactions too large to keep in memory. default: java.io.tmpdir" ).withRequiredArg();
+		parser.accepts( "spill_quota", "bytes of disk all spilled transactions may use together; 0 for no limit. default: 0" ).withRequiredArg();
 
 		parser.accepts("__separator_2");
 
@@ -134,6 +158,8 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "producer", "producer type: stdout|file|kafka|kinesis" ).withRequiredArg();
 		parser.accepts( "output_file", "output file for 'file' producer" ).withRequiredArg();
 
+		parser.accepts( "producer_inflight_messages", "kafka/kinesis producers: wait for acks once this many messages are in flight. default: 0 (no limit)" ).withRequiredArg();
+		parser.accepts( "producer_inflight_bytes", "kafka/kinesis producers: wait for acks once about this many bytes are in flight. default: 0 (no limit)" ).withRequiredArg();
 		parser.accepts( "producer_partition_by", "database|table|primary_key|column, kafka/kinesis producers will partition by this value").withRequiredArg();
 		parser.accepts("producer_partition_columns",
 		    "with producer_partition_by=column, partition by the value of these columns.  "
@@ -147,6 +173,8 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "kafka_partition_hash", "default|murmur3, hash function for partitioning").withRequiredArg();
 		parser.accepts( "kafka_topic", "optionally provide a topic name to push to. default: maxwell").withOptionalArg();
 		parser.accepts( "kafka_key_format", "how to format the kafka key; array|hash").withOptionalArg();
+		parser.accepts( "kafka_flush_transactions", "wait for each transaction to be acknowledged by kafka before sending the next. default: false" ).withOptionalArg();
+		parser.accepts( "kafka_producer_threads", "number of threads serializing rows and sending them to kafka, sharded by partition. default: 1" ).withRequiredArg();
 		parser.accepts( "kafka_version", "use kafka 0.8, 0.9, 0.10, 0.10.1, or 0.10.2 producer (default 0.9)");
 
 		parser.accepts( "kinesis_stream", "kinesis stream name").withOptionalArg();
@@ -160,6 +188,9 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "output_server_id", "produced records include server_id; [true|false]. default: false" ).withOptionalArg();
 		parser.accepts( "output_thread_id", "produced records include thread_id; [true|false]. default: false" ).withOptionalArg();
 		parser.accepts( "output_ddl", "produce DDL records to ddl_kafka_topic [true|false]. default: false" ).withOptionalArg();
+		parser.accepts( "output_binary_encoding", "how binary/blob columns are encoded: base64|hex. default: base64" ).withRequiredArg();
+		parser.accepts( "output_binary_max_bytes", "output binary/blob values longer than this as null; 0 for no limit. default: 0" ).withRequiredArg();
+		parser.accepts( "output_geometry_format", "how geometry columns are output: wkt|wkb_hex|geojson. default: wkt" ).withRequiredArg();
 		parser.accepts( "ddl_kafka_topic", "optionally provide an alternate topic to push DDL records to. default: kafka_topic").withOptionalArg();
 
 		parser.accepts( "__separator_5" );
@@ -302,6 +333,19 @@ public class MaxwellConfig extends AbstractConfig {
 		this.schemaMysql        = parseMysqlConfig("schema_", options, properties);
 		this.shykoMode          = fetchBooleanOption("binlog_connector", options, properties, System.getenv("SHYKO_MODE") != null);
 		this.gtidMode           = fetchBooleanOption("gtid_mode", options, properties, System.getenv(GTID_MODE_ENV) != null);
+		this.decodeThreads      = Integer.parseInt(fetchOption("decode_threads", options, properties, "1"));
+		this.eventBufferSize    = Integer.parseInt(fetchOption("event_buffer_size", options, properties, String.valueOf(DEFAULT_EVENT_BUFFER_SIZE)));
+
+		String eventBufferWait  = fetchOption("event_buffer_wait", options, properties, "park");
+		try {
+			this.eventBufferWaitStrategy = RingBuffer.WaitStrategy.fromString(eventBufferWait);
+		} catch ( IllegalArgumentException e ) {
+			usageForOptions("please specify --event_buffer_wait=spin|yield|park", "--event_buffer_wait");
+		}
+
+		this.streamTransactions = fetchBooleanOption("stream_transactions", options, properties, false);
+		this.spillDirectory     = fetchOption("spill_directory", options, properties, null);
+		this.spillQuota         = fetchLongOption("spill_quota", options, properties, 0L);
 
 		this.databaseName       = fetchOption("schema_database", options, properties, "maxwell");
 		this.maxwellMysql.database = this.databaseName;
@@ -319,6 +363,10 @@ public class MaxwellConfig extends AbstractConfig {
 
 		this.kafkaPartitionHash 	= fetchOption("kafka_partition_hash", options, properties, "default");
 		this.ddlKafkaTopic 		    = fetchOption("ddl_kafka_topic", options, properties, this.kafkaTopic);
+		this.producerInflightMessages = fetchLongOption("producer_inflight_messages", options, properties, 0L);
+		this.producerInflightBytes    = fetchLongOption("producer_inflight_bytes", options, properties, 0L);
+		this.kafkaProducerThreads   = Integer.parseInt(fetchOption("kafka_producer_threads", options, properties, "1"));
+		this.kafkaFlushTransactions = fetchBooleanOption("kafka_flush_transactions", options, properties, false);
 
 		String kafkaBootstrapServers = fetchOption("kafka.bootstrap.servers", options, properties, null);
 		if ( kafkaBootstrapServers != null )
@@ -414,6 +462,22 @@ public class MaxwellConfig extends AbstractConfig {
 		outputConfig.includesServerId = fetchBooleanOption("output_server_id", options, properties, false);
 		outputConfig.includesThreadId = fetchBooleanOption("output_thread_id", options, properties, false);
 		outputConfig.outputDDL	= fetchBooleanOption("output_ddl", options, properties, false);
+
+		String binaryEncoding   = fetchOption("output_binary_encoding", options, properties, "base64");
+		try {
+			this.outputBinaryEncoding = StringColumnDef.BinaryEncoding.fromString(binaryEncoding);
+		} catch ( IllegalArgumentException e ) {
+			usageForOptions("please specify --output_binary_encoding=base64|hex", "--output_binary_encoding");
+		}
+		this.outputBinaryMaxBytes = fetchLongOption("output_binary_max_bytes", options, properties, 0L);
+
+		String geometryFormat   = fetchOption("output_geometry_format", options, properties, "wkt");
+		try {
+			this.outputGeometryFormat = GeometryColumnDef.GeometryFormat.fromString(geometryFormat);
+		} catch ( IllegalArgumentException e ) {
+			usageForOptions("please specify --output_geometry_format=wkt|wkb_hex|geojson", "--output_geometry_format");
+		}
+
 		this.excludeColumns     = fetchOption("exclude_columns", options, properties, null);
 
 		if ( this.excludeColumns != null ) {
@@ -512,6 +576,42 @@ public class MaxwellConfig extends AbstractConfig {
 			usageForOptions("Gtid mode is only support with shyko bin connector.", "--gtid_mode");
 		}
 
+		if ( decodeThreads < 1 ) {
+			usageForOptions("decode_threads must be at least 1", "--decode_threads");
+		}
+
+		if ( producerInflightMessages < 0 ) {
+			usageForOptions("producer_inflight_messages must be 0 or more", "--producer_inflight_messages");
+		}
+
+		if ( producerInflightBytes < 0 ) {
+			usageForOptions("producer_inflight_bytes must be 0 or more", "--producer_inflight_bytes");
+		}
+
+		if ( kafkaProducerThreads < 1 ) {
+			usageForOptions("kafka_producer_threads must be at least 1", "--kafka_producer_threads");
+		}
+
+		if ( eventBufferSize < 1 ) {
+			usageForOptions("event_buffer_size must be at least 1", "--event_buffer_size");
+		}
+
+		if ( spillDirectory != null && !new File(spillDirectory).isDirectory() ) {
+			usageForOptions("spill_directory must be an existing directory", "--spill_directory");
+		}
+
+		if ( spillQuota < 0 ) {
+			usageForOptions("spill_quota must be 0 or more", "--spill_quota");
+		}
+
+		if ( outputBinaryMaxBytes < 0 ) {
+			usageForOptions("output_binary_max_bytes must be 0 or more", "--output_binary_max_bytes");
+		}
+
+		if ( streamTransactions && !shykoMode ) {
+			usageForOptions("stream_transactions is only supported with the binlog connector.", "--stream_transactions");
+		}
+
 		if (gtidMode && masterRecovery) {
 			usageForOptions("There is no need to perform master_recovery under gtid_mode", "--gtid_mode");
 		}
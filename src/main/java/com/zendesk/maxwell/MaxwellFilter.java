@@ -5,6 +5,8 @@ import org.apache.commons.lang.StringUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /*
@@ -20,6 +22,9 @@ public class MaxwellFilter {
 	private final ArrayList<Pattern> blacklistDatabases = new ArrayList<>();
 	private final ArrayList<Pattern> blacklistTables = new ArrayList<>();
 
+	private static final int MAX_CACHED_VERDICTS = 100000;
+	private final VerdictCache verdicts = new VerdictCache(MAX_CACHED_VERDICTS);
+
 	public MaxwellFilter() { }
 	public MaxwellFilter(String includeDatabases,
 						 String excludeDatabases,
@@ -60,26 +65,32 @@ public class MaxwellFilter {
 
 	public void includeDatabase(String name) throws MaxwellInvalidFilterException {
 		includeDatabases.add(compile(name));
+		verdicts.clear();
 	}
 
 	public void excludeDatabase(String name) throws MaxwellInvalidFilterException {
 		excludeDatabases.add(compile(name));
+		verdicts.clear();
 	}
 
 	public void includeTable(String name) throws MaxwellInvalidFilterException {
 		includeTables.add(compile(name));
+		verdicts.clear();
 	}
 
 	public void excludeTable(String name) throws MaxwellInvalidFilterException {
 		excludeTables.add(compile(name));
+		verdicts.clear();
 	}
 
 	public void blacklistDatabases(String name) throws MaxwellInvalidFilterException {
 		blacklistDatabases.add(compile(name));
+		verdicts.clear();
 	}
 
 	public void blacklistTable(String name) throws MaxwellInvalidFilterException {
 		blacklistTables.add(compile(name));
+		verdicts.clear();
 	}
 
 	public boolean isDatabaseWhitelist() {
@@ -123,18 +134,51 @@ public class MaxwellFilter {
 		return filterListsInclude(includeTables, excludeTables, tableName);
 	}
 
-	public boolean matches(String database, String table) {
+	private boolean computeMatches(String database, String table) {
 		return matchesDatabase(database) && matchesTable(table);
 	}
 
+	private boolean computeTableBlacklisted(String databaseName, String tableName) {
+		return isSystemBlacklisted(databaseName, tableName)
+			   || isDatabaseBlacklisted(databaseName)
+			   || !filterListsInclude(emptyList, blacklistTables, tableName);
+	}
+
+	/*
+	   both answers for a database/table pair, run through the regexes once and
+	   then remembered.  They only depend on the names and on our patterns, so
+	   creating or renaming tables never makes one stale; changing the patterns
+	   throws them all away.
+	 */
+	private int verdict(String database, String table) {
+		int v = verdicts.get(database, table);
+		if ( v == VerdictCache.MISSING ) {
+			v = 0;
+			if ( computeMatches(database, table) )
+				v |= VerdictCache.MATCHES;
+			if ( computeTableBlacklisted(database, table) )
+				v |= VerdictCache.BLACKLISTED;
+			verdicts.put(database, table, v);
+		}
+		return v;
+	}
+
+	public boolean matches(String database, String table) {
+		if ( database == null || table == null )
+			return computeMatches(database, table);
+
+		return (verdict(database, table) & VerdictCache.MATCHES) != 0;
+	}
+
 	public boolean isDatabaseBlacklisted(String databaseName) {
 		return ! filterListsInclude(emptyList, blacklistDatabases, databaseName);
 	}
 
 	public boolean isTableBlacklisted(String databaseName, String tableName) {
-		return isSystemBlacklisted(databaseName, tableName)
-			   || isDatabaseBlacklisted(databaseName)
-			   || !filterListsInclude(emptyList, blacklistTables, tableName);
+		if ( databaseName == null || tableName == null )
+			return computeTableBlacklisted(databaseName, tableName);
+
+		return (verdict(databaseName, tableName) & VerdictCache.BLACKLISTED) != 0;
 	}
 
 	public static boolean isSystemBlacklisted(String databaseName, String tableName) {
@@ -149,4 +193,53 @@ public class MaxwellFilter {
 			return filter.matches(database, table);
 		}
 	}
+
+	/*
+	   database -> table -> verdict bits.  Shared by the replicator and the
+	   binlog client's thread, hence concurrent.  When it fills up we simply
+	   start over; that only happens with more distinct tables than the bound.
+	 */
+	private static class VerdictCache {
+		static final int MISSING = -1;
+		static final int MATCHES = 1;
+		static final int BLACKLISTED = 2;
+
+		private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> map = new ConcurrentHashMap<>();
+		private final AtomicInteger size = new AtomicInteger(0);
+		private final int maxSize;
+
+		VerdictCache(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		int get(String database, String table) {
+			ConcurrentHashMap<String, Integer> tables = map.get(database);
+			if ( tables == null )
+				return MISSING;
+
+			Integer v = tables.get(table);
+			return v == null ? MISSING : v;
+		}
+
+		void put(String database, String table, int verdict) {
+			if ( size.get() >= maxSize )
+				clear();
+
+			ConcurrentHashMap<String, Integer> tables = map.get(database);
+			if ( tables == null ) {
+				tables = new ConcurrentHashMap<>();
+				ConcurrentHashMap<String, Integer> existing = map.putIfAbsent(database, tables);
+				if ( existing != null )
+					tables = existing;
+			}
+
+			if ( tables.put(table, verdict) == null )
+				size.incrementAndGet();
+		}
+
+		void clear() {
+			map.clear();
+			size.set(0);
+		}
+	}
 }
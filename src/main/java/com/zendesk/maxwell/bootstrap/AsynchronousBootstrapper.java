@@ -129,11 +129,15 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 	private void replaySkippedRows(String databaseName, String tableName, AbstractProducer producer, RowMap bootstrapCompleteRow) throws Exception {
 		BinlogPosition bootstrapStartBinlogPosition = getBootstrapStartBinlogPosition(bootstrapCompleteRow);
 		LOGGER.info("async bootstrapping: replaying " + skippedRows.size(databaseName, tableName) + " skipped rows...");
-		skippedRows.flushToDisk(databaseName, tableName);
-		while ( skippedRows.size(databaseName, tableName) > 0 ) {
-			RowMap row = skippedRows.removeFirst(databaseName, tableName);
-			if ( bootstrapStartBinlogPosition == null || row.getPosition().getBinlogPosition().newerThan(bootstrapStartBinlogPosition) )
-				producer.push(row);
+		try {
+			skippedRows.flushToDisk(databaseName, tableName);
+			while ( skippedRows.size(databaseName, tableName) > 0 ) {
+				RowMap row = skippedRows.removeFirst(databaseName, tableName);
+				if ( bootstrapStartBinlogPosition == null || row.getPosition().getBinlogPosition().newerThan(bootstrapStartBinlogPosition) )
+					producer.push(row);
+			}
+		} finally {
+			skippedRows.close(databaseName, tableName);
 		}
 		LOGGER.info("async bootstrapping: replay complete");
 	}
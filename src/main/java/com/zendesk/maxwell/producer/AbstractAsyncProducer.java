@@ -1,5 +1,6 @@
 package com.zendesk.maxwell.producer;
 
+import com.zendesk.maxwell.MaxwellConfig;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
@@ -12,24 +13,33 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 	public final static String[] failedMessageMeterName = {"messages", "failed", "meter"};
 
 	public class CallbackCompleter {
-		private InflightMessageList inflightMessages;
+		private final InflightMessageList inflightMessages;
+		private final InflightMessageList.Message message; // null unless the row's position is being tracked
 		private final MaxwellContext context;
-		private final Position position;
-		private final boolean isTXCommit;
 		private final long sendTimeMS;
 		private Long completeTimeMS;
+		private InflightLimit inflightLimit; // what to give `size` back to on completion, if anything
+		private final long size;
 
-		public CallbackCompleter(InflightMessageList inflightMessages, Position position, boolean isTXCommit, MaxwellContext context) {
+		public CallbackCompleter(InflightMessageList inflightMessages, InflightMessageList.Message message, MaxwellContext context) {
+			this(inflightMessages, message, context, null, 0L);
+		}
+
+		public CallbackCompleter(InflightMessageList inflightMessages, InflightMessageList.Message message, MaxwellContext context,
+		                         InflightLimit inflightLimit, long size) {
 			this.inflightMessages = inflightMessages;
+			this.message = message;
 			this.context = context;
-			this.position = position;
-			this.isTXCommit = isTXCommit;
 			this.sendTimeMS = System.currentTimeMillis();
+			this.inflightLimit = inflightLimit;
+			this.size = size;
 		}
 
 		public void markCompleted() {
-			if(isTXCommit) {
-				Position newPosition = inflightMessages.completeMessage(position);
+			releaseInflight();
+
+			if(message != null) {
+				Position newPosition = inflightMessages.completeMessage(message);
 
 				if(newPosition != null) {
 					context.setPosition(newPosition);
@@ -38,6 +48,26 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 			completeTimeMS = System.currentTimeMillis();
 		}
 
+		/*
+		   the row failed for good and we're terminating.  Its share of the
+		   inflight limit goes back, so a push() waiting on it doesn't hang the
+		   shutdown; the position is left behind it.
+		 */
+		public void markFailed() {
+			releaseInflight();
+		}
+
+		private void releaseInflight() {
+			if ( inflightLimit != null ) {
+				inflightLimit.release(size);
+				inflightLimit = null;
+			}
+		}
+
+		public long getSendTimeMS() {
+			return sendTimeMS;
+		}
+
 		public Long timeToSendMS() {
 			if ( completeTimeMS == null ) return null;
 			return completeTimeMS - sendTimeMS;
@@ -45,33 +75,51 @@ public abstract class AbstractAsyncProducer extends AbstractProducer {
 	}
 
 	private InflightMessageList inflightMessages;
+	private InflightLimit inflightLimit;
 
 	public AbstractAsyncProducer() {
 		this.inflightMessages = new InflightMessageList();
 	}
 
+	@Override
+	public void setContext(MaxwellContext context) {
+		super.setContext(context);
+
+		MaxwellConfig config = context.getConfig();
+		this.inflightLimit = new InflightLimit(config.producerInflightMessages, config.producerInflightBytes);
+		this.inflightLimit.registerGauges(context.getMaxwellMetrics());
+	}
+
 	public abstract void sendAsync(RowMap r, CallbackCompleter cc) throws Exception;
 
+	/*
+	   a row that isn't output.  Its position is done once `cc` is completed,
+	   which by default is right away.
+	 */
+	protected void skipAsync(RowMap r, CallbackCompleter cc) throws Exception {
+		cc.markCompleted();
+	}
+
 	@Override
 	public final void push(RowMap r) throws Exception {
 		Position position = r.getPosition();
 		// Rows that do not get sent to a target will be automatically marked as complete.
 		// We will attempt to commit a checkpoint up to the current row.
 		if(!r.shouldOutput(outputConfig)) {
-			inflightMessages.addMessage(position);
-
-			Position completed = inflightMessages.completeMessage(position);
-			if(completed != null) {
-				context.setPosition(completed);
-			}
+			skipAsync(r, new CallbackCompleter(inflightMessages, inflightMessages.addMessage(position), context));
 			return;
 		}
 
+		// blocks while there's too much in flight already.
+		long size = r.getApproximateSize();
+		inflightLimit.acquire(size);
+
+		InflightMessageList.Message message = null;
 		if(r.isTXCommit()) {
-			inflightMessages.addMessage(position);
+			message = inflightMessages.addMessage(position);
 		}
 
-		CallbackCompleter cc = new CallbackCompleter(inflightMessages, position, r.isTXCommit(), context);
+		CallbackCompleter cc = new CallbackCompleter(inflightMessages, message, context, inflightLimit, size);
 
 		sendAsync(r, cc);
 	}
@@ -1,29 +1,31 @@
 package com.zendesk.maxwell.producer;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.row.RowMap;
 
 public class FileProducer extends AbstractProducer {
 	private final File file;
-	private final FileWriter fileWriter;
+	private final OutputStream fileStream;
 
 	public FileProducer(String filename) throws IOException {
 		this.file = new File(filename);
-		this.fileWriter = new FileWriter(this.file, true);
+		this.fileStream = new BufferedOutputStream(new FileOutputStream(this.file, true));
 	}
 
 	@Override
 	public void push(RowMap r) throws Exception {
-		String output = r.toJSON(outputConfig);
+		byte[] output = r.toJSONBytes(outputConfig);
 
 		if ( output != null ) {
-			this.fileWriter.write(r.toJSON(outputConfig));
-			this.fileWriter.write('\n');
-			this.fileWriter.flush();
+			this.fileStream.write(output);
+			this.fileStream.write('\n');
+			this.fileStream.flush();
 		}
 
 		context.setPosition(r);
@@ -0,0 +1,106 @@
+package com.zendesk.maxwell.producer;
+
+import com.codahale.metrics.Gauge;
+import com.zendesk.maxwell.metrics.MaxwellMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+   caps the messages, and the (approximate) bytes of them, that a producer
+   has sent but not yet heard back about.  acquire() blocks while either cap
+   is reached, which holds up the producer and, behind it, the binlog reader,
+   until enough sends complete.  A limit of 0 is no limit; and a message is
+   always let through when nothing else is in flight, however big it is.
+ */
+public class InflightLimit {
+	private final long maxMessages;
+	private final long maxBytes;
+
+	private long messages;
+	private long bytes;
+	private long blockedCount;
+	private long blockedNanos;
+
+	public InflightLimit(long maxMessages, long maxBytes) {
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+	}
+
+	public synchronized void acquire(long size) throws InterruptedException {
+		if ( isFull(size) ) {
+			long start = System.nanoTime();
+			try {
+				while ( isFull(size) )
+					wait();
+			} finally {
+				blockedCount++;
+				blockedNanos += System.nanoTime() - start;
+			}
+		}
+
+		messages++;
+		bytes += size;
+	}
+
+	public synchronized void release(long size) {
+		messages--;
+		bytes -= size;
+		notifyAll();
+	}
+
+	private boolean isFull(long size) {
+		if ( messages == 0 )
+			return false;
+
+		return ( maxMessages > 0 && messages >= maxMessages )
+			|| ( maxBytes > 0 && bytes + size > maxBytes );
+	}
+
+	public synchronized long getMessages() {
+		return messages;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/* how many acquire() calls have had to wait */
+	public synchronized long getBlockedCount() {
+		return blockedCount;
+	}
+
+	/* how long, all told, acquire() calls have waited */
+	public synchronized long getBlockedTimeMS() {
+		return TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+	}
+
+	public void registerGauges(MaxwellMetrics metrics) {
+		metrics.gauge(new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getMessages();
+			}
+		}, "producer", "inflight", "messages");
+
+		metrics.gauge(new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getBytes();
+			}
+		}, "producer", "inflight", "bytes");
+
+		metrics.gauge(new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getBlockedCount();
+			}
+		}, "producer", "inflight", "blocked", "count");
+
+		metrics.gauge(new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getBlockedTimeMS();
+			}
+		}, "producer", "inflight", "blocked", "time");
+	}
+}
@@ -3,59 +3,76 @@ package com.zendesk.maxwell.producer;
    network, that may complete in any order.  Allows for only bumping
    the binlog position upon completion of the oldest outstanding item.
 
-   Assumes .addInflight(position) will be call monotonically.
+   Messages are numbered as they're added and linked together in that
+   order, behind a low watermark: the newest message that it and everything
+   before it is complete.  Nothing here locks.  Completing a message marks it,
+   then moves the watermark over whatever complete messages follow it; that's
+   O(1) per message no matter how many are in flight.
+
+   Assumes .addMessage(position) will be called monotonically, from one thread.
    */
 
-import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
 
-import java.util.LinkedHashMap;
-import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class InflightMessageList {
-	class InflightMessage {
-		public final Position position;
-		public boolean isComplete;
-		InflightMessage(Position p) {
-			this.position = p;
-			this.isComplete = false;
+	public static class Message {
+		final Position position;
+		final long sequence;
+		volatile boolean isComplete;
+		volatile Message next;
+
+		Message(Position position, long sequence) {
+			this.position = position;
+			this.sequence = sequence;
 		}
 	}
 
-	private LinkedHashMap<Position, InflightMessage> linkedMap;
+	private final AtomicReference<Message> watermark;
+	private Message tail; // only touched by the adding thread
+	private volatile long lastSequence;
 
 	public InflightMessageList() {
-		this.linkedMap = new LinkedHashMap<>();
+		Message start = new Message(null, 0);
+		start.isComplete = true;
+		this.watermark = new AtomicReference<>(start);
+		this.tail = start;
 	}
 
-	public synchronized void addMessage(Position p) {
-		InflightMessage m = new InflightMessage(p);
-		this.linkedMap.put(p, m);
+	/* the returned message is what gets passed back to completeMessage */
+	public Message addMessage(Position p) {
+		Message m = new Message(p, tail.sequence + 1);
+		tail.next = m;
+		tail = m;
+		lastSequence = m.sequence;
+		return m;
 	}
 
 	/* returns the position that stuff is complete up to, or null if there were no changes */
-	public synchronized Position completeMessage(Position p) {
-		InflightMessage m = this.linkedMap.get(p);
-		assert(m != null);
-
+	public Position completeMessage(Message m) {
 		m.isComplete = true;
 
-		Position completeUntil = null;
-		Iterator<InflightMessage> iterator = this.linkedMap.values().iterator();
-
-		while ( iterator.hasNext() ) {
-			InflightMessage msg = iterator.next();
-			if ( !msg.isComplete )
+		/*
+		   whichever thread sees the message after the watermark complete moves
+		   the watermark on.  If two messages complete at once, at least one of
+		   the two threads sees both marks, so the watermark can't get stuck.
+		 */
+		Message completeUntil = null;
+		while ( true ) {
+			Message w = watermark.get();
+			Message next = w.next;
+			if ( next == null || !next.isComplete )
 				break;
 
-			completeUntil = msg.position;
-			iterator.remove();
+			if ( watermark.compareAndSet(w, next) )
+				completeUntil = next;
 		}
 
-		return completeUntil;
+		return completeUntil == null ? null : completeUntil.position;
 	}
 
 	public int size() {
-		return linkedMap.size();
+		return (int) (lastSequence - watermark.get().sequence);
 	}
 }
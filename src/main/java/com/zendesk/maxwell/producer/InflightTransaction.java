@@ -0,0 +1,50 @@
+package com.zendesk.maxwell.producer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+   the rows of one transaction on their way to kafka or kinesis.  Only a
+   transaction's commit row goes into the InflightMessageList, and completing
+   it is what moves the checkpoint; so it's held back until every row of the
+   transaction has been acknowledged.  Otherwise, with rows spread across
+   several producer threads (or kinesis shards), a commit acknowledged early
+   could checkpoint past rows still in flight.
+ */
+class InflightTransaction {
+	// rows not yet acknowledged, plus one until the commit row has been added.
+	private final AtomicInteger outstanding = new AtomicInteger(1);
+	private volatile AbstractAsyncProducer.CallbackCompleter commit;
+	private final CountDownLatch completed = new CountDownLatch(1);
+
+	/* called in row order, from one thread, before the row is handed off */
+	void addRow() {
+		outstanding.incrementAndGet();
+	}
+
+	/* the commit row, after its own addRow(); no more rows will be added. */
+	void addCommit(AbstractAsyncProducer.CallbackCompleter commit) {
+		this.commit = commit;
+		release();
+	}
+
+	/* a row of this transaction was acknowledged */
+	void rowCompleted(AbstractAsyncProducer.CallbackCompleter cc) {
+		if ( cc != commit )
+			cc.markCompleted();
+		release();
+	}
+
+	private void release() {
+		if ( outstanding.decrementAndGet() == 0 ) {
+			commit.markCompleted();
+			completed.countDown();
+		}
+	}
+
+	/* wait for every row, commit included, to be acknowledged.  false if we gave up first. */
+	boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		return completed.await(timeout, unit);
+	}
+}
@@ -0,0 +1,142 @@
+package com.zendesk.maxwell.producer;
+
+import com.codahale.metrics.Timer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.KafkaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+   partition counts of the topics we send to.  KafkaProducer#partitionsFor is
+   a metadata lookup and a fresh list on every call, which is a lot to pay
+   per row; instead each topic is looked up once, and a background thread
+   re-reads the producer's metadata every so often to pick up added
+   partitions.
+
+   Only topics used since the last refresh are refreshed; the others are
+   dropped (and marked expired), so interpolated topics of tables we no
+   longer see don't pile up.
+ */
+class KafkaPartitionCounts {
+	static final Logger LOGGER = LoggerFactory.getLogger(KafkaPartitionCounts.class);
+	static final long DEFAULT_REFRESH_INTERVAL_MS = 10000L;
+
+	/*
+	   a topic's partition count.  Hang on to it; `count` stays current
+	   until the topic is expired, then get() it again.
+	 */
+	static class Topic {
+		final String name;
+		volatile int count;
+		volatile boolean used = true;
+		volatile boolean expired = false;
+
+		Topic(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		/* call on every use, or the topic expires at the next refresh */
+		void markUsed() {
+			if ( !used )
+				used = true;
+		}
+	}
+
+	private final Producer<?, ?> kafka;
+	private final ConcurrentHashMap<String, Topic> topics;
+	private final Timer refreshTimer;
+	private final ScheduledExecutorService refresher;
+
+	/* `refreshIntervalMS` of 0 leaves refreshing to the caller */
+	KafkaPartitionCounts(Producer<?, ?> kafka, Timer refreshTimer, long refreshIntervalMS) {
+		this.kafka = kafka;
+		this.topics = new ConcurrentHashMap<>();
+		this.refreshTimer = refreshTimer;
+
+		if ( refreshIntervalMS > 0 ) {
+			this.refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "maxwell-kafka-partition-refresh");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			this.refresher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					refresh();
+				}
+			}, refreshIntervalMS, refreshIntervalMS, TimeUnit.MILLISECONDS);
+		} else {
+			this.refresher = null;
+		}
+	}
+
+	/* the topic's entry, asking kafka the first time a topic is seen */
+	Topic get(String name) {
+		Topic topic = topics.get(name);
+		if ( topic == null ) {
+			topic = new Topic(name, fetch(name));
+			Topic existing = topics.putIfAbsent(name, topic);
+			if ( existing != null )
+				topic = existing;
+		}
+		return topic;
+	}
+
+	int count(String name) {
+		return get(name).count;
+	}
+
+	int size() {
+		return topics.size();
+	}
+
+	void refresh() {
+		Timer.Context time = refreshTimer.time();
+		try {
+			for ( Topic topic : topics.values() ) {
+				if ( !topic.used ) {
+					topics.remove(topic.name, topic);
+					topic.expired = true;
+					continue;
+				}
+				topic.used = false;
+
+				try {
+					int count = fetch(topic.name);
+					if ( count != topic.count ) {
+						LOGGER.info("topic '" + topic.name + "' went from " + topic.count + " to " + count + " partitions");
+						topic.count = count;
+					}
+				} catch ( KafkaException e ) {
+					// already logged; keep the count we had.
+				}
+			}
+		} finally {
+			time.stop();
+		}
+	}
+
+	void close() {
+		if ( refresher != null )
+			refresher.shutdownNow();
+	}
+
+	private int fetch(String topic) {
+		try {
+			return this.kafka.partitionsFor(topic).size(); //returns 1 for new topics
+		} catch (KafkaException e) {
+			LOGGER.error("Topic '" + topic + "' name does not exist. Exception: " + e.getLocalizedMessage());
+			throw e;
+		}
+	}
+}
@@ -16,14 +16,16 @@ import com.zendesk.maxwell.util.StoppableTask;
 import com.zendesk.maxwell.util.StoppableTaskState;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
-import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.errors.RecordTooLargeException;
-import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -34,8 +36,9 @@ class KafkaCallback implements Callback {
 	public static final Logger LOGGER = LoggerFactory.getLogger(MaxwellKafkaProducer.class);
 	private final AbstractAsyncProducer.CallbackCompleter cc;
 	private final Position position;
-	private final String json;
-	private final String key;
+	private final byte[] json;
+	private final byte[] key;
+	private final InflightTransaction transaction;
 	private final Timer timer;
 	private final MaxwellContext context;
 
@@ -44,10 +47,11 @@ class KafkaCallback implements Callback {
 	private Meter succeededMessageMeter;
 	private Meter failedMessageMeter;
 
-	public KafkaCallback(AbstractAsyncProducer.CallbackCompleter cc, Position position, String key, String json,
-	                     Timer timer, Counter producedMessageCount, Counter failedMessageCount, Meter producedMessageMeter,
+	public KafkaCallback(AbstractAsyncProducer.CallbackCompleter cc, InflightTransaction transaction, Position position,
+	                     byte[] key, byte[] json, Timer timer, Counter producedMessageCount, Counter failedMessageCount, Meter producedMessageMeter,
 	                     Meter failedMessageMeter, MaxwellContext context) {
 		this.cc = cc;
+		this.transaction = transaction;
 		this.position = position;
 		this.key = key;
 		this.json = json;
@@ -65,11 +69,12 @@ class KafkaCallback implements Callback {
 			this.failedMessageCount.inc();
 			this.failedMessageMeter.mark();
 
-			LOGGER.error(e.getClass().getSimpleName() + " @ " + position + " -- " + key);
+			LOGGER.error(e.getClass().getSimpleName() + " @ " + position + " -- " + asString(key));
 			LOGGER.error(e.getLocalizedMessage());
 			if ( e instanceof RecordTooLargeException ) {
 				LOGGER.error("Considering raising max.request.size broker-side.");
 			} else if (!this.context.getConfig().ignoreProducerError) {
+				cc.markFailed();
 				this.context.terminate(e);
 				return;
 			}
@@ -78,15 +83,20 @@ class KafkaCallback implements Callback {
 			this.succeededMessageMeter.mark();
 
 			if (LOGGER.isDebugEnabled()) {
-				LOGGER.debug("->  key:" + key + ", partition:" + md.partition() + ", offset:" + md.offset());
-				LOGGER.debug("   " + this.json);
+				LOGGER.debug("->  key:" + asString(key) + ", partition:" + md.partition() + ", offset:" + md.offset());
+				LOGGER.debug("   " + asString(this.json));
 				LOGGER.debug("   " + position);
 				LOGGER.debug("");
 			}
 		}
 
-		cc.markCompleted();
-		timer.update(cc.timeToSendMS(), TimeUnit.MILLISECONDS);
+		transaction.rowCompleted(cc);
+		timer.update(System.currentTimeMillis() - cc.getSendTimeMS(), TimeUnit.MILLISECONDS);
+	}
+
+	/* keys and values are only decoded when something gets logged */
+	private static String asString(byte[] bytes) {
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
 	}
 }
 
@@ -122,15 +132,25 @@ public class MaxwellKafkaProducer extends AbstractProducer {
 
 class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnable, StoppableTask {
 	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellKafkaProducer.class);
+	static final int MAX_INTERPOLATED_TOPICS = 20000;
 
-	private final KafkaProducer<String, String> kafka;
+	private final Producer<byte[], byte[]> kafka;
 	private String topic;
 	private final String ddlTopic;
 	private final MaxwellKafkaPartitioner partitioner;
 	private final MaxwellKafkaPartitioner ddlPartitioner;
 	private final KeyFormat keyFormat;
+	private final TopicTemplate topicTemplate;
 	private final boolean interpolateTopic;
+	private final boolean flushTransactions;
+	// interpolated topics by database, then table; only touched by the worker thread.
+	private final HashMap<String, HashMap<String, KafkaPartitionCounts.Topic>> interpolatedTopics = new HashMap<>();
+	private int interpolatedTopicCount;
 	private final ArrayBlockingQueue<RowMap> queue;
+	private final KafkaPartitionCounts partitionCounts;
+	private KafkaPartitionCounts.Topic topicPartitions, ddlTopicPartitions;
+	private final ProducerThread[] producerThreads; // null when the worker thread sends everything itself
+	private InflightTransaction transaction = new InflightTransaction();
 	private Thread thread;
 	private StoppableTaskState taskState;
 
@@ -141,13 +161,20 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 	private final Meter failedMessageMeter;
 
 	public MaxwellKafkaProducerWorker(Properties kafkaProperties, String kafkaTopic, ArrayBlockingQueue<RowMap> queue, MaxwellConfig config, MaxwellMetrics maxwellMetrics) {
+		this(newKafkaProducer(kafkaProperties, config), kafkaTopic, queue, config, maxwellMetrics);
+	}
+
+	MaxwellKafkaProducerWorker(Producer<byte[], byte[]> kafka, String kafkaTopic, ArrayBlockingQueue<RowMap> queue, MaxwellConfig config, MaxwellMetrics maxwellMetrics) {
+		this.kafka = kafka;
 		this.topic = kafkaTopic;
 		if ( this.topic == null ) {
 			this.topic = "maxwell";
 		}
 
-		this.interpolateTopic = this.topic.contains("%{");
-		this.kafka = new KafkaProducer<>(kafkaProperties, new StringSerializer(), new StringSerializer());
+		this.topicTemplate = new TopicTemplate(this.topic);
+		this.interpolateTopic = this.topicTemplate.isInterpolated();
+		this.partitionCounts = new KafkaPartitionCounts(this.kafka, maxwellMetrics.timer("kafka", "partition_refresh"),
+			KafkaPartitionCounts.DEFAULT_REFRESH_INTERVAL_MS);
 
 		String hash = config.kafkaPartitionHash;
 		String partitionKey = config.producerPartitionKey;
@@ -156,6 +183,7 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 		this.partitioner = new MaxwellKafkaPartitioner(hash, partitionKey, partitionColumns, partitionFallback);
 		this.ddlPartitioner = new MaxwellKafkaPartitioner(hash, "database", null,"database");
 		this.ddlTopic =  config.ddlKafkaTopic;
+		this.flushTransactions = config.kafkaFlushTransactions;
 
 		if ( config.kafkaKeyFormat.equals("hash") )
 			keyFormat = KeyFormat.HASH;
@@ -179,6 +207,19 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 
 		this.queue = queue;
 		this.taskState = new StoppableTaskState("MaxwellKafkaProducerWorker");
+
+		if ( config.kafkaProducerThreads > 1 ) {
+			this.producerThreads = new ProducerThread[config.kafkaProducerThreads];
+			for ( int i = 0; i < producerThreads.length; i++ ) {
+				ProducerThread p = new ProducerThread();
+				p.thread = new Thread(p, "maxwell-kafka-producer-" + i);
+				p.thread.setDaemon(true);
+				p.thread.start();
+				producerThreads[i] = p;
+			}
+		} else {
+			this.producerThreads = null;
+		}
 	}
 
 	@Override
@@ -192,6 +233,12 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 					return;
 				}
 				this.push(row);
+
+				// we may have given up waiting on a transaction to stop.
+				if ( !taskState.isRunning() ) {
+					taskState.stopped();
+					return;
+				}
 			} catch ( Exception e ) {
 				taskState.stopped();
 				context.terminate(e);
@@ -200,48 +247,196 @@ class MaxwellKafkaProducerWorker extends AbstractAsyncProducer implements Runnab
 		}
 	}
 
-	private Integer getNumPartitions(String topic) {
-		try {
-			return this.kafka.partitionsFor(topic).size(); //returns 1 for new topics
-		} catch (KafkaException e) {
-			LOGGER.error("Topic '" + topic + "' name does not exist. Exception: " + e.getLocalizedMessage());
-			throw e;
+	/*
+	   the row's topic, with its partition count.  Topics are looked up once
+	   and remembered, until they expire for lack of use (see KafkaPartitionCounts).
+	 */
+	private KafkaPartitionCounts.Topic getTopic(RowMap r) {
+		KafkaPartitionCounts.Topic t;
+		if ( r instanceof DDLMap ) {
+			if ( ddlTopicPartitions == null || ddlTopicPartitions.expired )
+				ddlTopicPartitions = partitionCounts.get(this.ddlTopic);
+			t = ddlTopicPartitions;
+		} else if ( interpolateTopic ) {
+			t = getInterpolatedTopic(r.getDatabase(), r.getTable());
+		} else {
+			if ( topicPartitions == null || topicPartitions.expired )
+				topicPartitions = partitionCounts.get(this.topic);
+			t = topicPartitions;
 		}
+		t.markUsed();
+		return t;
 	}
 
-	private String generateTopic(String topic, RowMap r){
-		if ( interpolateTopic )
-			return topic.replaceAll("%\\{database\\}", r.getDatabase()).replaceAll("%\\{table\\}", r.getTable());
-		else
-			return topic;
+	private KafkaPartitionCounts.Topic getInterpolatedTopic(String database, String table) {
+		HashMap<String, KafkaPartitionCounts.Topic> tables = interpolatedTopics.get(database);
+		KafkaPartitionCounts.Topic t = tables == null ? null : tables.get(table);
+		if ( t != null && !t.expired )
+			return t;
+
+		// more tables than we'd like to remember; start over rather than grow without bound.
+		if ( t == null && interpolatedTopicCount >= MAX_INTERPOLATED_TOPICS ) {
+			interpolatedTopics.clear();
+			interpolatedTopicCount = 0;
+			tables = null;
+		}
+
+		if ( tables == null ) {
+			tables = new HashMap<>();
+			interpolatedTopics.put(database, tables);
+		}
+
+		if ( t == null )
+			interpolatedTopicCount++;
+		t = partitionCounts.get(topicTemplate.resolve(database, table));
+		tables.put(table, t);
+		return t;
 	}
 
+	/*
+	   runs on the worker thread, in row order.  Picks the row's topic and
+	   partition, then serializes and sends it -- right here, or on the
+	   producer thread that owns that partition.  A partition only ever goes
+	   through one thread, so its rows reach kafka in order.
+	 */
 	@Override
 	public void sendAsync(RowMap r, AbstractAsyncProducer.CallbackCompleter cc) throws Exception {
-		String key = r.pkToJson(keyFormat);
-		String value = r.toJSON(outputConfig);
+		KafkaPartitionCounts.Topic t = getTopic(r);
+		String topic = t.name;
+		int partition;
+		if (r instanceof DDLMap)
+			partition = this.ddlPartitioner.kafkaPartition(r, t.count);
+		else
+			partition = this.partitioner.kafkaPartition(r, t.count);
 
-		ProducerRecord<String, String> record;
-		if (r instanceof DDLMap) {
-			record = new ProducerRecord<>(this.ddlTopic, this.ddlPartitioner.kafkaPartition(r, getNumPartitions(this.ddlTopic)), key, value);
-		} else {
-			String topic = generateTopic(this.topic, r);
-			record = new ProducerRecord<>(topic, this.partitioner.kafkaPartition(r, getNumPartitions(topic)), key, value);
+		InflightTransaction tx = this.transaction;
+		tx.addRow();
+		if ( r.isTXCommit() )
+			tx.addCommit(cc);
+
+		PendingRow row = new PendingRow(r, cc, tx, topic, partition);
+		if ( producerThreads == null )
+			send(row);
+		else
+			producerThreads[shardFor(topic, partition)].queue.put(row);
+
+		if ( r.isTXCommit() )
+			endTransaction();
+	}
+
+	/* a commit row that isn't output (see CommitRowMap) still ends its transaction */
+	@Override
+	protected void skipAsync(RowMap r, AbstractAsyncProducer.CallbackCompleter cc) throws Exception {
+		if ( !r.isTXCommit() ) {
+			cc.markCompleted();
+			return;
 		}
 
-		/* if debug logging isn't enabled, release the reference to `value`, which can ease memory pressure somewhat */
-		if ( !KafkaCallback.LOGGER.isDebugEnabled() )
-			value = null;
+		this.transaction.addCommit(cc);
+		endTransaction();
+	}
 
-		KafkaCallback callback = new KafkaCallback(cc, r.getPosition(), key, value, this.metricsTimer,
+	/*
+	   with kafka_flush_transactions, nothing of the next transaction is sent
+	   until kafka has acknowledged all of this one.  A row that fails for good
+	   never is, so we give up waiting once we're asked to stop.
+	 */
+	private void endTransaction() throws Exception {
+		InflightTransaction tx = this.transaction;
+		this.transaction = new InflightTransaction();
+
+		if ( flushTransactions ) {
+			kafka.flush();
+			while ( !tx.awaitCompletion(100, TimeUnit.MILLISECONDS) ) {
+				if ( !taskState.isRunning() )
+					return;
+			}
+		}
+	}
+
+	private static KafkaProducer<byte[], byte[]> newKafkaProducer(Properties kafkaProperties, MaxwellConfig config) {
+		if ( config.kafkaFlushTransactions && !producerCanFlush() )
+			throw new RuntimeException("kafka_flush_transactions needs kafka 0.9 or later; see --kafka_version");
+
+		return new KafkaProducer<>(kafkaProperties, new ByteArraySerializer(), new ByteArraySerializer());
+	}
+
+	/* KafkaProducer#flush arrived in kafka 0.9; bin/maxwell can still load the 0.8 client. */
+	private static boolean producerCanFlush() {
+		try {
+			KafkaProducer.class.getMethod("flush");
+			return true;
+		} catch ( NoSuchMethodException e ) {
+			return false;
+		}
+	}
+
+	private int shardFor(String topic, int partition) {
+		return ((31 * topic.hashCode() + partition) & Integer.MAX_VALUE) % producerThreads.length;
+	}
+
+	private void send(PendingRow row) throws Exception {
+		RowMap r = row.rowMap;
+		RowMap.KeyAndValue kv = r.toKeyAndValueBytes(keyFormat, outputConfig);
+		ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(row.topic, row.partition, kv.key, kv.value);
+
+		// the callback only needs the value for debug logging; don't keep it alive until the ack otherwise.
+		byte[] value = KafkaCallback.LOGGER.isDebugEnabled() ? kv.value : null;
+
+		KafkaCallback callback = new KafkaCallback(row.cc, row.transaction, r.getPosition(), kv.key, value, this.metricsTimer,
 				this.succeededMessageCount, this.failedMessageCount, this.succeededMessageMeter, this.failedMessageMeter, this.context);
 
 		kafka.send(record, callback);
 	}
 
+	/* a row that's been given its place, waiting for a producer thread */
+	private static class PendingRow {
+		final RowMap rowMap;
+		final AbstractAsyncProducer.CallbackCompleter cc;
+		final InflightTransaction transaction;
+		final String topic;
+		final int partition;
+
+		PendingRow(RowMap rowMap, AbstractAsyncProducer.CallbackCompleter cc, InflightTransaction transaction, String topic, int partition) {
+			this.rowMap = rowMap;
+			this.cc = cc;
+			this.transaction = transaction;
+			this.topic = topic;
+			this.partition = partition;
+		}
+	}
+
+	private class ProducerThread implements Runnable {
+		private final ArrayBlockingQueue<PendingRow> queue = new ArrayBlockingQueue<>(100);
+		private Thread thread;
+
+		@Override
+		public void run() {
+			while ( true ) {
+				try {
+					PendingRow row = queue.take();
+					if ( !taskState.isRunning() )
+						return;
+					send(row);
+				} catch ( InterruptedException e ) {
+					return;
+				} catch ( Exception e ) {
+					if ( taskState.isRunning() )
+						context.terminate(e);
+					return;
+				}
+			}
+		}
+	}
+
 	@Override
 	public void requestStop() {
 		taskState.requestStop();
+		if ( producerThreads != null ) {
+			for ( ProducerThread p : producerThreads )
+				p.thread.interrupt();
+		}
+		partitionCounts.close();
 		kafka.close();
 	}
 
@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -21,13 +22,16 @@ class KinesisCallback implements FutureCallback<UserRecordResult> {
 	public static final Logger logger = LoggerFactory.getLogger(KinesisCallback.class);
 
 	private final AbstractAsyncProducer.CallbackCompleter cc;
+	private final InflightTransaction transaction;
 	private final Position position;
 	private final String json;
 	private MaxwellContext context;
 	private final String key;
 
-	public KinesisCallback(AbstractAsyncProducer.CallbackCompleter cc, Position position, String key, String json, MaxwellContext context) {
+	public KinesisCallback(AbstractAsyncProducer.CallbackCompleter cc, InflightTransaction transaction, Position position,
+	                       String key, String json, MaxwellContext context) {
 		this.cc = cc;
+		this.transaction = transaction;
 		this.position = position;
 		this.key = key;
 		this.json = json;
@@ -47,9 +51,10 @@ class KinesisCallback implements FutureCallback<UserRecordResult> {
 		logger.error("Exception during put", t);
 
 		if (!context.getConfig().ignoreProducerError) {
+			cc.markFailed();
 			context.terminate(new RuntimeException(t));
 		} else {
-			cc.markCompleted();
+			transaction.rowCompleted(cc);
 		}
 	};
 
@@ -62,7 +67,7 @@ class KinesisCallback implements FutureCallback<UserRecordResult> {
 			logger.debug("");
 		}
 
-		cc.markCompleted();
+		transaction.rowCompleted(cc);
 	};
 }
 
@@ -72,6 +77,7 @@ public class MaxwellKinesisProducer extends AbstractAsyncProducer {
 	private final MaxwellKinesisPartitioner partitioner;
 	private final KinesisProducer kinesisProducer;
 	private final String kinesisStream;
+	private InflightTransaction transaction = new InflightTransaction();
 
 	public MaxwellKinesisProducer(String kinesisStream) {
 		String partitionKey = context.getConfig().producerPartitionKey;
@@ -93,18 +99,40 @@ public class MaxwellKinesisProducer extends AbstractAsyncProducer {
 	@Override
 	public void sendAsync(RowMap r, AbstractAsyncProducer.CallbackCompleter cc) throws Exception {
 		String key = this.partitioner.getKinesisKey(r);
-		String value = r.toJSON(outputConfig);
+		ByteBuffer encodedValue = r.toJSONByteBuffer(outputConfig);
+
+		// the callback only needs the json for debug logging
+		String value = null;
+		if ( KinesisCallback.logger.isDebugEnabled() )
+			value = new String(encodedValue.array(), StandardCharsets.UTF_8);
+
+		InflightTransaction tx = this.transaction;
+		tx.addRow();
+		if ( r.isTXCommit() ) {
+			tx.addCommit(cc);
+			this.transaction = new InflightTransaction();
+		}
 
-		ByteBuffer encodedValue = ByteBuffer.wrap(value.getBytes("UTF-8"));
 		ListenableFuture<UserRecordResult> future = kinesisProducer.addUserRecord(kinesisStream, key, encodedValue);
 
-		// release the reference to ease memory pressure
-		if(!KinesisCallback.logger.isDebugEnabled()) {
-			value = null;
-		}
-
-		FutureCallback<UserRecordResult> callback = new KinesisCallback(cc, r.getPosition(), key, value, this.context);
+		FutureCallback<UserRecordResult> callback = new KinesisCallback(cc, tx, r.getPosition(), key, value, this.context);
 
 		Futures.addCallback(future, callback);
 	}
+
+	/*
+	   records for different keys land on different shards and can be acknowledged
+	   out of order, so a commit row that isn't output (see CommitRowMap) must still
+	   wait for the streamed rows of its transaction before it checkpoints.
+	 */
+	@Override
+	protected void skipAsync(RowMap r, AbstractAsyncProducer.CallbackCompleter cc) throws Exception {
+		if ( !r.isTXCommit() ) {
+			cc.markCompleted();
+			return;
+		}
+
+		this.transaction.addCommit(cc);
+		this.transaction = new InflightTransaction();
+	}
 }
@@ -0,0 +1,82 @@
+package com.zendesk.maxwell.producer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+   a kafka topic that may contain %{database} and %{table}, split up once
+   into literal text and placeholders so that filling it in is just
+   appending strings.  Row values go in literally; no regex replacement
+   strings, so a `$` or `\` in a name comes through as-is.
+ */
+class TopicTemplate {
+	private static final String DATABASE = "%{database}";
+	private static final String TABLE = "%{table}";
+
+	private final String template;
+	// literal text, with DATABASE and TABLE (compared by identity) standing in for the placeholders.
+	private final String[] segments;
+	private final int literalLength;
+
+	TopicTemplate(String template) {
+		this.template = template;
+
+		List<String> segments = new ArrayList<>();
+		int literalLength = 0;
+		int start = 0;
+		while ( start < template.length() ) {
+			int database = template.indexOf(DATABASE, start);
+			int table = template.indexOf(TABLE, start);
+			int next = database < 0 ? table : ( table < 0 ? database : Math.min(database, table) );
+			if ( next < 0 )
+				next = template.length();
+
+			if ( next > start ) {
+				segments.add(template.substring(start, next));
+				literalLength += next - start;
+			}
+
+			if ( next == database ) {
+				segments.add(DATABASE);
+				start = next + DATABASE.length();
+			} else if ( next == table ) {
+				segments.add(TABLE);
+				start = next + TABLE.length();
+			} else {
+				start = next;
+			}
+		}
+
+		this.segments = segments.toArray(new String[segments.size()]);
+		this.literalLength = literalLength;
+	}
+
+	boolean isInterpolated() {
+		for ( String s : segments ) {
+			if ( s == DATABASE || s == TABLE )
+				return true;
+		}
+		return false;
+	}
+
+	String resolve(String database, String table) {
+		if ( segments.length == 1 && segments[0] != DATABASE && segments[0] != TABLE )
+			return template;
+
+		StringBuilder sb = new StringBuilder(literalLength + 2 * (database.length() + table.length()));
+		for ( String s : segments ) {
+			if ( s == DATABASE )
+				sb.append(database);
+			else if ( s == TABLE )
+				sb.append(table);
+			else
+				sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+}
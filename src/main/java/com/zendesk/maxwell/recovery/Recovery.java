@@ -9,6 +9,7 @@ import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.replication.Replicator;
 import com.zendesk.maxwell.row.HeartbeatRowMap;
 import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.util.RingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +17,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import snaq.db.ConnectionPool;
 
@@ -74,7 +77,12 @@ public class Recovery {
 						position,
 						true,
 						recoveryInfo.clientID,
-						maxwellMetrics
+						maxwellMetrics,
+						1,
+						Collections.<Pattern>emptyList(),
+						MaxwellConfig.DEFAULT_EVENT_BUFFER_SIZE,
+						RingBuffer.WaitStrategy.PARK,
+						false
 						);
 			} else {
 				replicator = new MaxwellReplicator(
@@ -88,7 +96,9 @@ public class Recovery {
 						position,
 						true,
 						recoveryInfo.clientID,
-						maxwellMetrics
+						maxwellMetrics,
+						MaxwellConfig.DEFAULT_EVENT_BUFFER_SIZE,
+						RingBuffer.WaitStrategy.PARK
 						);
 			}
 
@@ -91,9 +91,9 @@ public abstract class AbstractReplicator extends RunLoopProcess implements Repli
 				DDLMap ddl = new DDLMap(change, timestamp, sql, position);
 				producer.push(ddl);
 			}
-		}
 
-		tableCache.clear();
+			tableCache.invalidate(change);
+		}
 	}
 
 	/**
@@ -1,27 +1,24 @@
 package com.zendesk.maxwell.replication;
 
 import com.github.shyiko.mysql.binlog.event.*;
+import com.zendesk.maxwell.row.LazyRowMap;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.schema.Table;
-import com.zendesk.maxwell.schema.columndef.ColumnDef;
 
 import java.io.Serializable;
 import java.util.*;
 
 public class BinlogConnectorEvent {
-	private BinlogPosition position;
-	private BinlogPosition nextPosition;
 	private final Event event;
-	private final String gtidSetStr;
+	private final String filename;
+	private final LazyGtidSet gtidSet;
 	private final String gtid;
 
-	public BinlogConnectorEvent(Event event, String filename, String gtidSetStr, String gtid) {
+	public BinlogConnectorEvent(Event event, String filename, LazyGtidSet gtidSet, String gtid) {
 		this.event = event;
-		this.gtidSetStr = gtidSetStr;
+		this.filename = filename;
+		this.gtidSet = gtidSet;
 		this.gtid = gtid;
-		EventHeaderV4 hV4 = (EventHeaderV4) event.getHeader();
-		this.nextPosition = new BinlogPosition(gtidSetStr, gtid, hV4.getNextPosition(), filename);
-		this.position = new BinlogPosition(gtidSetStr, gtid, hV4.getPosition(), filename);
 	}
 
 	public Event getEvent() {
@@ -53,7 +50,13 @@ public class BinlogConnectorEvent {
 	}
 
 	public BinlogPosition getPosition() {
-		return position;
+		EventHeaderV4 hV4 = (EventHeaderV4) event.getHeader();
+		return new BinlogPosition(gtidSet, gtid, hV4.getPosition(), filename);
+	}
+
+	public BinlogPosition getNextPosition() {
+		EventHeaderV4 hV4 = (EventHeaderV4) event.getHeader();
+		return new BinlogPosition(gtidSet, gtid, hV4.getNextPosition(), filename);
 	}
 
 	public EventType getType() {
@@ -78,69 +81,21 @@ public class BinlogConnectorEvent {
 		return null;
 	}
 
-	private void writeData(Table table, RowMap row, Serializable[] data, BitSet includedColumns) {
-		int dataIdx = 0, colIdx = 0;
-
-		for ( ColumnDef cd : table.getColumnList() ) {
-			if ( includedColumns.get(colIdx) ) {
-				Object json = null;
-				if ( data[dataIdx] != null ) {
-					json = cd.asJSON(data[dataIdx]);
-				}
-				row.putData(cd.getName(), json);
-				dataIdx++;
-			}
-			colIdx++;
-		}
-	}
-
-	private void writeOldData(Table table, RowMap row, Serializable[] oldData, BitSet oldIncludedColumns) {
-		int dataIdx = 0, colIdx = 0;
-
-		for ( ColumnDef cd : table.getColumnList() ) {
-			if ( oldIncludedColumns.get(colIdx) ) {
-				Object json = null;
-				if ( oldData[dataIdx] != null ) {
-					json = cd.asJSON(oldData[dataIdx]);
-				}
-
-				if (!row.hasData(cd.getName())) {
-					/*
-					   If we find a column in the BEFORE image that's *not* present in the AFTER image,
-					   we're running in binlog_row_image = MINIMAL.  In this case, the BEFORE image acts
-					   as a sort of WHERE clause to update rows with the new values (present in the AFTER image),
-					   In this case we should put what's in the "before" image into the "data" section, not the "old".
-					 */
-					row.putData(cd.getName(), json);
-				} else {
-					if (!Objects.equals(row.getData(cd.getName()), json)) {
-						row.putOldData(cd.getName(), json);
-					}
-				}
-				dataIdx++;
-			}
-			colIdx++;
-		}
-	}
-
 	private RowMap buildRowMap(String type, Position position, Serializable[] data, Table table, BitSet includedColumns) {
-		RowMap map = new RowMap(
+		return new LazyRowMap(
 			type,
-			table.getDatabase(),
-			table.getName(),
+			table,
 			event.getHeader().getTimestamp() / 1000,
-			table.getPKList(),
-			position
+			position,
+			data,
+			includedColumns
 		);
-
-		writeData(table, map, data, includedColumns);
-		return map;
 	}
 
 	public List<RowMap> jsonMaps(Table table, Position lastHeartbeatPosition) {
 		ArrayList<RowMap> list = new ArrayList<>();
 
-		Position nextPosition = lastHeartbeatPosition.withBinlogPosition(this.nextPosition);
+		Position nextPosition = lastHeartbeatPosition.withBinlogPosition(getNextPosition());
 		switch ( getType() ) {
 			case WRITE_ROWS:
 			case EXT_WRITE_ROWS:
@@ -160,9 +115,16 @@ public class BinlogConnectorEvent {
 					Serializable[] data = e.getValue();
 					Serializable[] oldData = e.getKey();
 
-					RowMap r = buildRowMap("update", nextPosition, data, table, updateRowsData().getIncludedColumns());
-					writeOldData(table, r, oldData, updateRowsData().getIncludedColumnsBeforeUpdate());
-					list.add(r);
+					list.add(new LazyRowMap(
+						"update",
+						table,
+						event.getHeader().getTimestamp() / 1000,
+						nextPosition,
+						data,
+						updateRowsData().getIncludedColumns(),
+						oldData,
+						updateRowsData().getIncludedColumnsBeforeUpdate()
+					));
 				}
 				break;
 		}
@@ -1,6 +1,5 @@
 package com.zendesk.maxwell.replication;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -8,6 +7,7 @@ import com.github.shyiko.mysql.binlog.BinaryLogClient;
 import com.github.shyiko.mysql.binlog.event.Event;
 import com.github.shyiko.mysql.binlog.event.EventType;
 import com.github.shyiko.mysql.binlog.event.GtidEventData;
+import com.zendesk.maxwell.util.RingBuffer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,14 +16,17 @@ class BinlogConnectorEventListener implements BinaryLogClient.EventListener,
 					      BinaryLogClient.LifecycleListener {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BinlogConnectorEventListener.class);
 
-	private final BlockingQueue<BinlogConnectorEvent> queue;
+	private final RingBuffer<BinlogConnectorEvent> queue;
 	protected final AtomicBoolean mustStop = new AtomicBoolean(false);
 	private final BinaryLogClient client;
 	private String gtid;
+	// our own copy of the client's gtid set, so we never have to ask the client to render it
+	private LazyGtidSet gtidSet;
 
-	public BinlogConnectorEventListener(BinaryLogClient client, BlockingQueue<BinlogConnectorEvent> q) {
+	public BinlogConnectorEventListener(BinaryLogClient client, RingBuffer<BinlogConnectorEvent> q) {
 		this.client = client;
 		this.queue = q;
+		this.gtidSet = LazyGtidSet.of(client.getGtidSet());
 	}
 	public void stop() {
 		mustStop.set(true);
@@ -31,11 +34,14 @@ class BinlogConnectorEventListener implements BinaryLogClient.EventListener,
 
 	@Override
 	public void onEvent(Event event) {
+		if (event.getHeader().getEventType() == EventType.GTID) {
+			gtid = ((GtidEventData)event.getData()).getGtid();
+			if ( gtidSet != null )
+				gtidSet = gtidSet.add(gtid);
+		}
+		BinlogConnectorEvent ep = new BinlogConnectorEvent(event, client.getBinlogFilename(), gtidSet, gtid);
+
 		while (mustStop.get() != true) {
-			if (event.getHeader().getEventType() == EventType.GTID) {
-				gtid = ((GtidEventData)event.getData()).getGtid();
-			}
-			BinlogConnectorEvent ep = new BinlogConnectorEvent(event, client.getBinlogFilename(), client.getGtidSet(), gtid);
 			try {
 				if ( queue.offer(ep, 100, TimeUnit.MILLISECONDS ) ) {
 					return;
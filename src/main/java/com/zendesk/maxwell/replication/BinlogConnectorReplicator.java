@@ -10,14 +10,17 @@ import com.zendesk.maxwell.MaxwellMysqlConfig;
 import com.zendesk.maxwell.bootstrap.AbstractBootstrapper;
 import com.zendesk.maxwell.metrics.MaxwellMetrics;
 import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.row.CommitRowMap;
 import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.row.RowMapBuffer;
 import com.zendesk.maxwell.schema.*;
+import com.zendesk.maxwell.util.RingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.ArrayDeque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -25,16 +28,25 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 	private final long MAX_TX_ELEMENTS = 10000;
 	protected SchemaStore schemaStore;
 
-	private final LinkedBlockingDeque<BinlogConnectorEvent> queue = new LinkedBlockingDeque<>(20);
+	private final RingBuffer<BinlogConnectorEvent> queue;
+	// events drained from `queue` in one go, consumed one at a time by pollEvent()
+	private final ArrayDeque<BinlogConnectorEvent> eventBatch;
 
 	protected BinlogConnectorEventListener binlogEventListener;
 
 	private final BinaryLogClient client;
+	private final BinlogConnectorRowDecoder rowDecoder;
 
 	static final Logger LOGGER = LoggerFactory.getLogger(BinlogConnectorReplicator.class);
 	private final boolean stopOnEOF;
 	private boolean hitEOF = false;
 
+	private final boolean streamTransactions;
+	// state of the transaction currently being streamed out (streamTransactions only)
+	private boolean inTransaction = false;
+	private Long transactionServerId, transactionThreadId;
+	private RowMap lastStreamedRow;
+
 	public BinlogConnectorReplicator(
 		SchemaStore schemaStore,
 		AbstractProducer producer,
@@ -45,10 +57,18 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 		Position start,
 		boolean stopOnEOF,
 		String clientID,
-		MaxwellMetrics maxwellMetrics
+		MaxwellMetrics maxwellMetrics,
+		int decodeThreads,
+		List<Pattern> excludeColumns,
+		int eventBufferSize,
+		RingBuffer.WaitStrategy eventBufferWaitStrategy,
+		boolean streamTransactions
 	) {
 		super(clientID, bootstrapper, maxwellSchemaDatabaseName, producer, start, maxwellMetrics);
 		this.schemaStore = schemaStore;
+		this.rowDecoder = new BinlogConnectorRowDecoder(decodeThreads, excludeColumns);
+		this.queue = new RingBuffer<>(eventBufferSize, eventBufferWaitStrategy);
+		this.eventBatch = new ArrayDeque<>(queue.capacity());
 
 		this.client = new BinaryLogClient(mysqlConfig.host, mysqlConfig.port, mysqlConfig.user, mysqlConfig.password);
 		BinlogPosition startBinlog = start.getBinlogPosition();
@@ -62,7 +82,14 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 			this.client.setBinlogPosition(startBinlog.getOffset());
 		}
 
-		EventDeserializer eventDeserializer = new EventDeserializer();
+		// rows events for tables we'd drop in getTransactionRows() don't need their row images decoded.
+		EventDeserializer eventDeserializer = new FilteringEventDeserializer(new FilteringEventDeserializer.TableFilter() {
+			@Override
+			public boolean isTableIgnored(String database, String table) {
+				return TableCache.isTableBlacklisted(filter, database, table)
+					|| !shouldOutputEvent(database, table, filter);
+			}
+		});
 		eventDeserializer.setCompatibilityMode(EventDeserializer.CompatibilityMode.DATE_AND_TIME_AS_LONG_MICRO,
 			EventDeserializer.CompatibilityMode.CHAR_AND_BINARY_AS_BYTE_ARRAY);
 		this.client.setEventDeserializer(eventDeserializer);
@@ -73,6 +100,7 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 		this.client.setServerId(replicaServerID.intValue());
 
 		this.stopOnEOF = stopOnEOF;
+		this.streamTransactions = streamTransactions;
 	}
 
 	public BinlogConnectorReplicator(SchemaStore schemaStore, AbstractProducer producer, AbstractBootstrapper bootstrapper, MaxwellContext ctx, Position start) throws SQLException {
@@ -86,7 +114,12 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 			start,
 			false,
 			ctx.getConfig().clientID,
-			ctx.getMaxwellMetrics()
+			ctx.getMaxwellMetrics(),
+			ctx.getConfig().decodeThreads,
+			ctx.getConfig().outputConfig.excludeColumns,
+			ctx.getConfig().eventBufferSize,
+			ctx.getConfig().eventBufferWaitStrategy,
+			ctx.getConfig().streamTransactions
 		);
 	}
 
@@ -113,6 +146,10 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 	protected void beforeStop() throws Exception {
 		this.binlogEventListener.stop();
 		this.client.disconnect();
+		this.rowDecoder.stop();
+
+		if ( rowBuffer != null )
+			rowBuffer.close();
 	}
 
 	private static Pattern createTablePattern =
@@ -126,13 +163,33 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 	 * and turn them into RowMap objects.  We do this because mysql attaches the
 	 * transaction-id (xid) to the COMMIT event (at the end of the transaction),
 	 * so we process the entire transaction in order to assign each row the same xid.
+	 *
+	 * Row decoding may happen on other threads (see BinlogConnectorRowDecoder); we flush
+	 * the decoder before touching the tail of the transaction or the schema.
+	 *
+	 * With --stream_transactions we instead return as soon as we have some rows,
+	 * and get called again (from getRow) until we reach the end of the transaction,
+	 * where we add a CommitRowMap carrying the xid.
 
 	 * @return A RowMapBuffer of rows; either in-memory or on disk.
 	 */
 
 	private RowMapBuffer getTransactionRows() throws Exception {
-		BinlogConnectorEvent event;
 		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS);
+		buffer.setServerId(transactionServerId);
+		buffer.setThreadId(transactionThreadId);
+
+		try {
+			return readTransactionRows(buffer);
+		} catch ( Exception e ) {
+			buffer.close(); // don't hold on to its share of the spill quota.
+			throw e;
+		}
+	}
+
+	private RowMapBuffer readTransactionRows(RowMapBuffer buffer) throws Exception {
+		BinlogConnectorEvent event;
+		inTransaction = true;
 
 		while ( true ) {
 			event = pollEvent();
@@ -152,8 +209,13 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					Table table = tableCache.getTable(event.getTableID());
 
 					if ( table != null && shouldOutputEvent(table.getDatabase(), table.getName(), filter) ) {
-						for ( RowMap r : event.jsonMaps(table, lastHeartbeatPosition) )
-							buffer.add(r);
+						rowDecoder.decode(event, table, lastHeartbeatPosition, buffer);
+					}
+
+					// maxwell's own rows (heartbeats, bootstrap) are held back until the commit.
+					if ( streamTransactions && !buffer.isEmpty() && !isMaxwellRow(buffer.getLast()) ) {
+						lastStreamedRow = buffer.getLast();
+						return buffer;
 					}
 
 					break;
@@ -168,8 +230,8 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					if ( sql.equals("COMMIT") ) {
 						// MyISAM will output a "COMMIT" QUERY_EVENT instead of a XID_EVENT.
 						// There's no transaction ID but we can still set "commit: true"
-						if ( !buffer.isEmpty() )
-							buffer.getLast().setTXCommit();
+						rowDecoder.flush(buffer);
+						commitTransaction(buffer, null, event);
 
 						return buffer;
 					} else if ( sql.toUpperCase().startsWith("SAVEPOINT")) {
@@ -179,6 +241,7 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 						// inside a transaction.  Note that this could, in rare cases, lead
 						// to us starting on a WRITE_ROWS event -- we sync the schema position somewhere
 						// kinda unsafe.
+						rowDecoder.flush(buffer);
 						processQueryEvent(event);
 					} else if (sql.toUpperCase().startsWith("INSERT INTO MYSQL.RDS_HEARTBEAT")) {
 						// RDS heartbeat events take the following form:
@@ -189,19 +252,55 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					}
 					break;
 				case XID:
-					buffer.setXid(event.xidData().getXid());
+					rowDecoder.flush(buffer);
 
 					// feed metric gauge.
 					replicationLag = System.currentTimeMillis() - event.getEvent().getHeader().getTimestamp();
 
-					if ( !buffer.isEmpty() )
-						buffer.getLast().setTXCommit();
+					commitTransaction(buffer, event.xidData().getXid(), event);
 
 					return buffer;
 			}
 		}
 	}
 
+	private void commitTransaction(RowMapBuffer buffer, Long xid, BinlogConnectorEvent commitEvent) throws Exception {
+		inTransaction = false;
+
+		RowMap last = buffer.isEmpty() ? lastStreamedRow : buffer.getLast();
+		lastStreamedRow = null;
+
+		// nothing of this transaction went out, so there's nothing to close.
+		if ( last == null )
+			return;
+
+		// transactions ending on one of maxwell's rows commit the way they always have.
+		if ( !streamTransactions || isMaxwellRow(last) ) {
+			buffer.setXid(xid);
+			setTXCommit(last);
+			return;
+		}
+
+		CommitRowMap marker = new CommitRowMap(
+			last.getDatabase(),
+			last.getTable(),
+			commitEvent.getEvent().getHeader().getTimestamp() / 1000,
+			lastHeartbeatPosition.withBinlogPosition(commitEvent.getNextPosition())
+		);
+		marker.setXid(xid);
+		setTXCommit(marker);
+		buffer.add(marker);
+	}
+
+	/*
+	   the commit row is the one whose position gets checkpointed, so it carries
+	   a rendered gtid set; every other row just shares the transaction's LazyGtidSet.
+	 */
+	private void setTXCommit(RowMap row) {
+		row.setTXCommit();
+		row.getPosition().getBinlogPosition().materializeGtidSet();
+	}
+
 	private RowMapBuffer rowBuffer;
 
 	/**
@@ -231,6 +330,12 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					return row;
 			}
 
+			if ( inTransaction ) {
+				// streaming: carry on with the transaction we've started to output.
+				rowBuffer = getTransactionRows();
+				continue;
+			}
+
 			event = pollEvent();
 
 			if (event == null) {
@@ -255,7 +360,9 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					LOGGER.warn("Started replication stream inside a transaction.  This shouldn't normally happen.");
 					LOGGER.warn("Assuming new transaction at unexpected event:" + event);
 
-					queue.offerFirst(event);
+					eventBatch.addFirst(event);
+					transactionServerId = null;
+					transactionThreadId = null;
 					rowBuffer = getTransactionRows();
 					break;
 				case TABLE_MAP:
@@ -266,15 +373,15 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 					QueryEventData qe = event.queryData();
 					String sql = qe.getSql();
 					if (sql.equals("BEGIN")) {
+						transactionServerId = event.getEvent().getHeader().getServerId();
+						transactionThreadId = qe.getThreadId();
 						rowBuffer = getTransactionRows();
-						rowBuffer.setServerId(event.getEvent().getHeader().getServerId());
-						rowBuffer.setThreadId(qe.getThreadId());
 					} else {
 						processQueryEvent(event);
 					}
 					break;
 				case ROTATE:
-					tableCache.clear();
+					tableCache.rotate();
 					if ( stopOnEOF && event.getPosition().getOffset() > 0 ) {
 						this.binlogEventListener.mustStop.set(true);
 						this.client.disconnect();
@@ -290,7 +397,10 @@ public class BinlogConnectorReplicator extends AbstractReplicator implements Rep
 	}
 
 	protected BinlogConnectorEvent pollEvent() throws InterruptedException {
-		return queue.poll(100, TimeUnit.MILLISECONDS);
+		if ( eventBatch.isEmpty() )
+			queue.drainTo(eventBatch, queue.capacity(), 100, TimeUnit.MILLISECONDS);
+
+		return eventBatch.poll();
 	}
 
 	private void processQueryEvent(BinlogConnectorEvent event) throws Exception {
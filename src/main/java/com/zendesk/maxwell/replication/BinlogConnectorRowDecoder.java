@@ -0,0 +1,113 @@
+package com.zendesk.maxwell.replication;
+
+import com.zendesk.maxwell.row.LazyRowMap;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.row.RowMapBuffer;
+import com.zendesk.maxwell.schema.Table;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/*
+   turns rows events into RowMaps, optionally fanning the column decoding out
+   to a pool of threads.  Inline, rows stay lazy and get decoded by whoever
+   outputs them (see LazyRowMap); on the pool, each row's columns -- all but
+   the ones exclude_columns drops -- are decoded up front, off both the
+   replicator and the producer threads.
+
+   Rows always come out in the order their events went in: we keep a FIFO
+   of pending decodes and only ever hand the head of that FIFO to the caller.
+   Callers must `flush` before anything that depends on the last row of a
+   transaction (setting xid/commit) or on schema state (DDL).
+ */
+public class BinlogConnectorRowDecoder {
+	private final ExecutorService executor;
+	private final ArrayDeque<Future<List<RowMap>>> pending;
+	private final int maxPending;
+	private final List<Pattern> excludeColumns;
+
+	public BinlogConnectorRowDecoder(int threads, List<Pattern> excludeColumns) {
+		this.excludeColumns = excludeColumns;
+		this.pending = new ArrayDeque<>();
+		this.maxPending = threads * 4;
+
+		if ( threads > 1 ) {
+			this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "maxwell-row-decoder-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		} else {
+			this.executor = null;
+		}
+	}
+
+	public void decode(final BinlogConnectorEvent event, final Table table, final Position lastHeartbeatPosition, RowMapBuffer buffer) throws Exception {
+		if ( executor == null ) {
+			for ( RowMap r : event.jsonMaps(table, lastHeartbeatPosition) )
+				buffer.add(r);
+			return;
+		}
+
+		drainCompleted(buffer);
+		while ( pending.size() >= maxPending )
+			drainOne(buffer);
+
+		pending.add(executor.submit(new Callable<List<RowMap>>() {
+			@Override
+			public List<RowMap> call() throws Exception {
+				List<RowMap> rows = event.jsonMaps(table, lastHeartbeatPosition);
+				for ( RowMap r : rows ) {
+					if ( r instanceof LazyRowMap )
+						((LazyRowMap) r).predecode(excludeColumns);
+				}
+				return rows;
+			}
+		}));
+	}
+
+	/* wait for all outstanding decodes, adding their rows to the buffer in binlog order. */
+	public void flush(RowMapBuffer buffer) throws Exception {
+		while ( !pending.isEmpty() )
+			drainOne(buffer);
+	}
+
+	public void stop() {
+		if ( executor != null )
+			executor.shutdownNow();
+	}
+
+	private void drainCompleted(RowMapBuffer buffer) throws Exception {
+		while ( !pending.isEmpty() && pending.peek().isDone() )
+			drainOne(buffer);
+	}
+
+	private void drainOne(RowMapBuffer buffer) throws Exception {
+		List<RowMap> rows;
+		try {
+			rows = pending.remove().get();
+		} catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof Exception )
+				throw (Exception) cause;
+			else
+				throw new RuntimeException(cause);
+		}
+
+		for ( RowMap r : rows )
+			buffer.add(r);
+	}
+}
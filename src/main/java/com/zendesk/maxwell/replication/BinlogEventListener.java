@@ -1,16 +1,16 @@
 package com.zendesk.maxwell.replication;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.code.or.binlog.BinlogEventV4;
+import com.zendesk.maxwell.util.RingBuffer;
 
 class BinlogEventListener implements com.google.code.or.binlog.BinlogEventListener {
-	private final BlockingQueue<BinlogEventV4> queue;
+	private final RingBuffer<BinlogEventV4> queue;
 	protected final AtomicBoolean mustStop = new AtomicBoolean(false);
 
-	public BinlogEventListener(BlockingQueue<BinlogEventV4> q) {
+	public BinlogEventListener(RingBuffer<BinlogEventV4> q) {
 		this.queue = q;
 	}
 	public void stop() {
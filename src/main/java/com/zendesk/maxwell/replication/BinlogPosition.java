@@ -17,20 +17,24 @@ public class BinlogPosition implements Serializable {
 	private static final String POSITION_COLUMN = "Position";
 	private static final String GTID_COLUMN = "Executed_Gtid_Set";
 
-	private final String gtidSetStr;
+	private final LazyGtidSet gtidSet;
 	private final String gtid;
 	private final long offset;
 	private final String file;
 
-	public BinlogPosition(String gtidSetStr, String gtid, long l, String file) {
-		this.gtidSetStr = gtidSetStr;
+	BinlogPosition(LazyGtidSet gtidSet, String gtid, long l, String file) {
+		this.gtidSet = gtidSet;
 		this.gtid = gtid;
 		this.offset = l;
 		this.file = file;
 	}
 
+	public BinlogPosition(String gtidSetStr, String gtid, long l, String file) {
+		this(LazyGtidSet.of(gtidSetStr), gtid, l, file);
+	}
+
 	public BinlogPosition(long l, String file) {
-		this(null, null, l, file);
+		this((LazyGtidSet) null, null, l, file);
 	}
 
 	public static BinlogPosition capture(Connection c, boolean gtidMode) throws SQLException {
@@ -47,7 +51,7 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public static BinlogPosition at(BinlogPosition position) {
-		return new BinlogPosition(position.gtidSetStr, position.gtid, position.offset, position.file);
+		return new BinlogPosition(position.gtidSet, position.gtid, position.offset, position.file);
 	}
 
 	public static BinlogPosition at(String gtidSetStr, long offset, String file) {
@@ -55,7 +59,7 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public static BinlogPosition at(long offset, String file) {
-		return new BinlogPosition(null, null, offset, file);
+		return new BinlogPosition((LazyGtidSet) null, null, offset, file);
 	}
 
 	public long getOffset() {
@@ -71,17 +75,23 @@ public class BinlogPosition implements Serializable {
 	}
 
 	public String getGtidSetStr() {
-		return gtidSetStr;
+		return gtidSet == null ? null : gtidSet.toString();
 	}
 
 	public GtidSet getGtidSet() {
-		return new GtidSet(gtidSetStr);
+		return new GtidSet(getGtidSetStr());
+	}
+
+	/* render the gtid set now, so that whoever checkpoints this position later gets it for free */
+	public void materializeGtidSet() {
+		if ( gtidSet != null )
+			gtidSet.toString();
 	}
 
 	@Override
 	public String toString() {
 		return "BinlogPosition["
-			+ (gtidSetStr == null ? file + ":" + offset : gtidSetStr)
+			+ (gtidSet == null ? file + ":" + offset : gtidSet.toString())
 			+ "]";
 	}
 
@@ -89,7 +99,7 @@ public class BinlogPosition implements Serializable {
 		if ( other == null )
 			return true;
 
-		if (gtidSetStr != null) {
+		if (gtidSet != null) {
 			return !getGtidSet().isContainedWithin(other.getGtidSet());
 		}
 
@@ -111,18 +121,17 @@ public class BinlogPosition implements Serializable {
 
 		return this.file.equals(otherPosition.file)
 			&& this.offset == otherPosition.offset
-			&& (gtidSetStr == null
-					? otherPosition.gtidSetStr == null
-					: gtidSetStr.equals(otherPosition.gtidSetStr)
-				);
+			&& (gtidSet == otherPosition.gtidSet
+				|| (gtidSet != null
+					&& otherPosition.gtidSet != null
+					&& gtidSet.toString().equals(otherPosition.gtidSet.toString())
+				)
+			);
 	}
 
 	@Override
 	public int hashCode() {
-		if (gtidSetStr != null) {
-			return gtidSetStr.hashCode();
-		} else {
-			return Long.valueOf(offset).hashCode();
-		}
+		// deliberately leaves out the gtid set: hashing it would force every row's set to be rendered.
+		return Long.valueOf(offset).hashCode();
 	}
 }
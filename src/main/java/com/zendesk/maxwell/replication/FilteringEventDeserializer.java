@@ -0,0 +1,147 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.DeleteRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.TableMapEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.UpdateRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.WriteRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+   An EventDeserializer that doesn't bother decoding row images for tables
+   we're going to throw away.
+
+   Every TABLE_MAP event is run past a TableFilter; rows events whose table-id
+   maps to an ignored table still get their header (table-id, column bitmaps)
+   parsed, but the row payload is skipped over and the event comes out with an
+   empty list of rows.
+
+   All state here is only ever touched from the binlog client's thread.
+ */
+public class FilteringEventDeserializer extends EventDeserializer {
+	public interface TableFilter {
+		boolean isTableIgnored(String database, String table);
+	}
+
+	private static final Serializable[] SKIPPED_ROW = new Serializable[0];
+
+	private final TableFilter tableFilter;
+	private final HashMap<Long, TableMapEventData> tableMaps = new HashMap<>();
+	private final HashMap<Long, Boolean> ignoredTables = new HashMap<>();
+
+	public FilteringEventDeserializer(TableFilter tableFilter) {
+		super();
+		this.tableFilter = tableFilter;
+
+		setEventDataDeserializer(EventType.TABLE_MAP, new TableMapDeserializer());
+		setEventDataDeserializer(EventType.WRITE_ROWS, new WriteRowsDeserializer());
+		setEventDataDeserializer(EventType.EXT_WRITE_ROWS, new WriteRowsDeserializer().setMayContainExtraInformation(true));
+		setEventDataDeserializer(EventType.UPDATE_ROWS, new UpdateRowsDeserializer());
+		setEventDataDeserializer(EventType.EXT_UPDATE_ROWS, new UpdateRowsDeserializer().setMayContainExtraInformation(true));
+		setEventDataDeserializer(EventType.DELETE_ROWS, new DeleteRowsDeserializer());
+		setEventDataDeserializer(EventType.EXT_DELETE_ROWS, new DeleteRowsDeserializer().setMayContainExtraInformation(true));
+	}
+
+	private boolean isIgnored(long tableId) {
+		Boolean ignored = ignoredTables.get(tableId);
+		return ignored != null && ignored;
+	}
+
+	/*
+	   the rows deserializers loop while there's data left in the event, so
+	   consuming the rest of the event's block ends the loop after one call.
+	 */
+	private static Serializable[] skipRows(ByteArrayInputStream inputStream) throws IOException {
+		inputStream.skip(inputStream.available());
+		return SKIPPED_ROW;
+	}
+
+	private class TableMapDeserializer implements EventDataDeserializer<TableMapEventData> {
+		private final TableMapEventDataDeserializer delegate = new TableMapEventDataDeserializer();
+
+		@Override
+		public TableMapEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			TableMapEventData data = delegate.deserialize(inputStream);
+
+			tableMaps.put(data.getTableId(), data);
+			ignoredTables.put(data.getTableId(), tableFilter.isTableIgnored(data.getDatabase(), data.getTable()));
+			return data;
+		}
+	}
+
+	private class WriteRowsDeserializer extends WriteRowsEventDataDeserializer {
+		WriteRowsDeserializer() {
+			super(tableMaps);
+		}
+
+		@Override
+		public WriteRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			WriteRowsEventData data = super.deserialize(inputStream);
+			if ( isIgnored(data.getTableId()) )
+				data.setRows(Collections.<Serializable[]>emptyList());
+			return data;
+		}
+
+		@Override
+		protected Serializable[] deserializeRow(long tableId, BitSet includedColumns, ByteArrayInputStream inputStream) throws IOException {
+			if ( isIgnored(tableId) )
+				return skipRows(inputStream);
+			return super.deserializeRow(tableId, includedColumns, inputStream);
+		}
+	}
+
+	private class UpdateRowsDeserializer extends UpdateRowsEventDataDeserializer {
+		UpdateRowsDeserializer() {
+			super(tableMaps);
+		}
+
+		@Override
+		public UpdateRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			UpdateRowsEventData data = super.deserialize(inputStream);
+			if ( isIgnored(data.getTableId()) )
+				data.setRows(Collections.<Map.Entry<Serializable[], Serializable[]>>emptyList());
+			return data;
+		}
+
+		@Override
+		protected Serializable[] deserializeRow(long tableId, BitSet includedColumns, ByteArrayInputStream inputStream) throws IOException {
+			if ( isIgnored(tableId) )
+				return skipRows(inputStream);
+			return super.deserializeRow(tableId, includedColumns, inputStream);
+		}
+	}
+
+	private class DeleteRowsDeserializer extends DeleteRowsEventDataDeserializer {
+		DeleteRowsDeserializer() {
+			super(tableMaps);
+		}
+
+		@Override
+		public DeleteRowsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+			DeleteRowsEventData data = super.deserialize(inputStream);
+			if ( isIgnored(data.getTableId()) )
+				data.setRows(Collections.<Serializable[]>emptyList());
+			return data;
+		}
+
+		@Override
+		protected Serializable[] deserializeRow(long tableId, BitSet includedColumns, ByteArrayInputStream inputStream) throws IOException {
+			if ( isIgnored(tableId) )
+				return skipRows(inputStream);
+			return super.deserializeRow(tableId, includedColumns, inputStream);
+		}
+	}
+}
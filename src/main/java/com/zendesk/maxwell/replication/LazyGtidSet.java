@@ -0,0 +1,90 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+
+/*
+   a GTID set that is only rendered to a string when someone asks for it.
+
+   Each transaction gets one node: a pointer to the previous transaction's node
+   plus the single gtid it added.  Rendering walks back to the nearest node
+   that has already been rendered and replays the gtids on top of it, so on a
+   server with a huge gtid_executed we pay for the string once per transaction
+   we actually checkpoint, rather than once per binlog event.
+
+   Nodes are immutable apart from the cached string, and are safe to render
+   from any thread.
+ */
+public class LazyGtidSet implements Serializable {
+	// don't let a long run of never-checkpointed transactions build an unbounded chain
+	private static final int MAX_UNRENDERED_DEPTH = 1000;
+
+	private final String gtid;
+	private final int depth;
+	private transient volatile LazyGtidSet parent;
+	private volatile String rendered;
+
+	private LazyGtidSet(LazyGtidSet parent, String gtid, int depth, String rendered) {
+		this.parent = parent;
+		this.gtid = gtid;
+		this.depth = depth;
+		this.rendered = rendered;
+	}
+
+	public static LazyGtidSet of(String gtidSetStr) {
+		if ( gtidSetStr == null )
+			return null;
+		return new LazyGtidSet(null, null, 0, gtidSetStr);
+	}
+
+	/* returns a new set made of this one plus `gtid`; this set is left alone. */
+	public LazyGtidSet add(String gtid) {
+		if ( rendered == null && depth >= MAX_UNRENDERED_DEPTH )
+			toString();
+
+		int newDepth = rendered == null ? depth + 1 : 1;
+		return new LazyGtidSet(this, gtid, newDepth, null);
+	}
+
+	public boolean isRendered() {
+		return rendered != null;
+	}
+
+	@Override
+	public String toString() {
+		String s = rendered;
+		if ( s != null )
+			return s;
+
+		ArrayDeque<String> gtids = new ArrayDeque<>();
+		LazyGtidSet node = this;
+		while ( (s = node.rendered) == null ) {
+			LazyGtidSet p = node.parent;
+			if ( p == null ) {
+				// rendered by another thread between our two reads; the string is set before parent is dropped.
+				s = node.rendered;
+				break;
+			}
+			gtids.push(node.gtid);
+			node = p;
+		}
+
+		if ( !gtids.isEmpty() ) {
+			GtidSet set = new GtidSet(s);
+			for ( String g : gtids )
+				set.add(g);
+			s = set.toString();
+		}
+
+		this.rendered = s;
+		this.parent = null;
+		return s;
+	}
+
+	private Object writeReplace() throws ObjectStreamException {
+		return of(toString());
+	}
+}
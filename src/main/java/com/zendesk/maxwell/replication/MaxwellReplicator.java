@@ -14,11 +14,12 @@ import com.zendesk.maxwell.row.RowMap;
 import com.zendesk.maxwell.row.RowMapBuffer;
 import com.zendesk.maxwell.schema.*;
 import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.util.RingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.ArrayDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -26,7 +27,9 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 	private final long MAX_TX_ELEMENTS = 10000;
 	protected SchemaStore schemaStore;
 
-	private final LinkedBlockingDeque<BinlogEventV4> queue = new LinkedBlockingDeque<>(20);
+	private final RingBuffer<BinlogEventV4> queue;
+	// events drained from `queue` in one go, consumed one at a time by pollV4EventFromQueue()
+	private final ArrayDeque<BinlogEventV4> eventBatch;
 
 	protected BinlogEventListener binlogEventListener;
 
@@ -48,10 +51,14 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 		Position start,
 		boolean stopOnEOF,
 		String clientID,
-		MaxwellMetrics maxwellMetrics
+		MaxwellMetrics maxwellMetrics,
+		int eventBufferSize,
+		RingBuffer.WaitStrategy eventBufferWaitStrategy
 	) {
 		super(clientID, bootstrapper, maxwellSchemaDatabaseName, producer, start, maxwellMetrics);
 		this.schemaStore = schemaStore;
+		this.queue = new RingBuffer<>(eventBufferSize, eventBufferWaitStrategy);
+		this.eventBatch = new ArrayDeque<>(queue.capacity());
 		this.binlogEventListener = new BinlogEventListener(queue);
 
 		this.replicator = new OpenReplicator();
@@ -87,7 +94,9 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 			start,
 			false,
 			ctx.getConfig().clientID,
-			ctx.getMaxwellMetrics()
+			ctx.getMaxwellMetrics(),
+			ctx.getConfig().eventBufferSize,
+			ctx.getConfig().eventBufferWaitStrategy
 		);
 	}
 
@@ -136,6 +145,9 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 	protected void beforeStop() throws Exception {
 		this.binlogEventListener.stop();
 		this.replicator.stop(5, TimeUnit.SECONDS);
+
+		if ( rowBuffer != null )
+			rowBuffer.close();
 	}
 
 	private Position eventPosition(AbstractBinlogEventV4 event) {
@@ -202,11 +214,20 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 	 */
 
 	private RowMapBuffer getTransactionRows() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS);
+
+		try {
+			return readTransactionRows(buffer);
+		} catch ( Exception e ) {
+			buffer.close(); // don't hold on to its share of the spill quota.
+			throw e;
+		}
+	}
+
+	private RowMapBuffer readTransactionRows(RowMapBuffer buffer) throws Exception {
 		BinlogEventV4 v4Event;
 		AbstractRowsEvent event;
 
-		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS);
-
 		while ( true ) {
 			v4Event = pollV4EventFromQueue();
 
@@ -325,7 +346,7 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 					LOGGER.warn("Started replication stream inside a transaction.  This shouldn't normally happen.");
 					LOGGER.warn("Assuming new transaction at unexpected event:" + v4Event);
 
-					queue.offerFirst(v4Event);
+					eventBatch.addFirst(v4Event);
 					rowBuffer = getTransactionRows();
 					break;
 				case MySQLConstants.TABLE_MAP_EVENT:
@@ -344,7 +365,7 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 					}
 					break;
 				case MySQLConstants.ROTATE_EVENT:
-					tableCache.clear();
+					tableCache.rotate();
 					if ( stopOnEOF ) {
 						this.replicator.stopQuietly(100, TimeUnit.MILLISECONDS);
 						setReplicatorPosition((AbstractBinlogEventV4) v4Event);
@@ -361,7 +382,10 @@ public class MaxwellReplicator extends AbstractReplicator implements Replicator
 	}
 
 	protected BinlogEventV4 pollV4EventFromQueue() throws InterruptedException {
-		return queue.poll(100, TimeUnit.MILLISECONDS);
+		if ( eventBatch.isEmpty() )
+			queue.drainTo(eventBatch, queue.capacity(), 100, TimeUnit.MILLISECONDS);
+
+		return eventBatch.poll();
 	}
 
 	private void processQueryEvent(QueryEvent event) throws Exception {
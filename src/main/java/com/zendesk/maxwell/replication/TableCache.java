@@ -1,37 +1,75 @@
 package com.zendesk.maxwell.replication;
 
 import java.util.HashMap;
+import java.util.Iterator;
 
 import com.google.code.or.binlog.impl.event.TableMapEvent;
 import com.zendesk.maxwell.MaxwellFilter;
 import com.zendesk.maxwell.schema.Database;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableAlter;
 
+/*
+   maps binlog table-ids to tables.
+
+   Each entry remembers the database and table name its TABLE_MAP event carried,
+   so a later TABLE_MAP for the same id is only trusted if the names still match.
+   Schema changes only invalidate the entries for the tables they touch, and a
+   ROTATE merely demotes entries: they are kept if the first TABLE_MAP in the
+   new file confirms them, and dropped at the next ROTATE otherwise.
+ */
 public class TableCache {
-	private final HashMap<Long, Table> tableMapCache = new HashMap<>();
-	private final HashMap<Long, String> blacklistedTableCache = new HashMap<>();
+	private static class Entry {
+		final String dbName;
+		final String tblName;
+		final Table table; // null when the table is blacklisted
 
-	public void processEvent(Schema schema, MaxwellFilter filter, Long tableId, String dbName, String tblName) {
-		if ( !tableMapCache.containsKey(tableId) ) {
-			if ( filter != null && filter.isTableBlacklisted(dbName, tblName) ) {
-				blacklistedTableCache.put(tableId, tblName);
-				return;
-			}
-
-			Database db = schema.findDatabase(dbName);
-			if ( db == null )
-				throw new RuntimeException("Couldn't find database " + dbName);
-			else {
-				Table tbl = db.findTable(tblName);
-
-				if (tbl == null)
-					throw new RuntimeException("Couldn't find table " + tblName + " in database " + dbName);
-				else
-					tableMapCache.put(tableId, tbl);
-			}
+		Entry(String dbName, String tblName, Table table) {
+			this.dbName = dbName;
+			this.tblName = tblName;
+			this.table = table;
+		}
+
+		boolean matches(String dbName, String tblName) {
+			return this.dbName.equals(dbName) && this.tblName.equals(tblName);
 		}
 
+		boolean isFor(String dbName, String tblName) {
+			return this.dbName.equalsIgnoreCase(dbName)
+				&& (tblName == null || this.tblName.equalsIgnoreCase(tblName));
+		}
+	}
+
+	private HashMap<Long, Entry> entries = new HashMap<>();
+	private HashMap<Long, Entry> previousEntries = new HashMap<>();
+
+	public void processEvent(Schema schema, MaxwellFilter filter, Long tableId, String dbName, String tblName) {
+		Entry entry = entries.get(tableId);
+		if ( entry != null && entry.matches(dbName, tblName) )
+			return;
+
+		entry = previousEntries.remove(tableId);
+		if ( entry == null || !entry.matches(dbName, tblName) )
+			entry = resolve(schema, filter, dbName, tblName);
+
+		entries.put(tableId, entry);
+	}
+
+	private Entry resolve(Schema schema, MaxwellFilter filter, String dbName, String tblName) {
+		if ( isTableBlacklisted(filter, dbName, tblName) )
+			return new Entry(dbName, tblName, null);
+
+		Database db = schema.findDatabase(dbName);
+		if ( db == null )
+			throw new RuntimeException("Couldn't find database " + dbName);
+
+		Table tbl = db.findTable(tblName);
+		if ( tbl == null )
+			throw new RuntimeException("Couldn't find table " + tblName + " in database " + dbName);
+
+		return new Entry(dbName, tblName, tbl);
 	}
 
 	// open-replicator keeps a very similar cache, but we can't get access to it.
@@ -42,20 +80,60 @@ public class TableCache {
 		processEvent(schema, filter, event.getTableId(), dbName, tblName);
 	}
 
+	public static boolean isTableBlacklisted(MaxwellFilter filter, String dbName, String tblName) {
+		return filter != null && filter.isTableBlacklisted(dbName, tblName);
+	}
+
 	public Table getTable(Long tableId) {
-		return tableMapCache.get(tableId);
+		Entry entry = entries.get(tableId);
+		return entry == null ? null : entry.table;
 	}
 
 	public boolean isTableBlacklisted(Long tableId) {
-		return blacklistedTableCache.containsKey(tableId);
+		Entry entry = entries.get(tableId);
+		return entry != null && entry.table == null;
 	}
 
 	public String getBlacklistedTableName(Long tableId) {
-		return blacklistedTableCache.get(tableId);
+		return isTableBlacklisted(tableId) ? entries.get(tableId).tblName : null;
+	}
+
+	/* forget every table-id that may point at a table `change` touched. */
+	public void invalidate(ResolvedSchemaChange change) {
+		invalidate(change.databaseName(), change.tableName());
+
+		if ( change instanceof ResolvedTableAlter ) {
+			Table newTable = ((ResolvedTableAlter) change).newTable;
+			invalidate(newTable.getDatabase(), newTable.getName());
+		}
+	}
+
+	private void invalidate(String dbName, String tblName) {
+		if ( dbName == null ) {
+			clear();
+			return;
+		}
+
+		invalidate(entries, dbName, tblName);
+		invalidate(previousEntries, dbName, tblName);
+	}
+
+	private static void invalidate(HashMap<Long, Entry> map, String dbName, String tblName) {
+		Iterator<Entry> iterator = map.values().iterator();
+		while ( iterator.hasNext() ) {
+			if ( iterator.next().isFor(dbName, tblName) )
+				iterator.remove();
+		}
+	}
+
+	/* called on ROTATE.  table-ids aren't guaranteed stable across files, so make each one be re-confirmed. */
+	public void rotate() {
+		previousEntries = entries;
+		entries = new HashMap<>();
 	}
 
 	public void clear() {
-		tableMapCache.clear();
-		blacklistedTableCache.clear();
+		entries.clear();
+		previousEntries.clear();
 	}
 }
@@ -0,0 +1,51 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.Position;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/*
+   closes a transaction whose rows were streamed out before mysql committed it
+   (see --stream_transactions).  It carries the xid and the commit position,
+   and is the only row of a streamed transaction that gets checkpointed.
+
+   database and table are copied from the transaction's last row so the marker
+   lands next to it when partitioning by database or table.
+
+   With --output_commit_info=false it renders to nothing, like a heartbeat, so
+   producers that don't check shouldOutput drop it too.
+ */
+public class CommitRowMap extends RowMap {
+	public CommitRowMap(String database, String table, Long timestamp, Position position) {
+		super("commit", database, table, timestamp, new ArrayList<String>(), position);
+		setTXCommit();
+	}
+
+	@Override
+	public String toJSON(MaxwellOutputConfig outputConfig) throws IOException {
+		if ( !outputConfig.includesCommitInfo )
+			return null;
+		return super.toJSON(outputConfig);
+	}
+
+	@Override
+	public byte[] toJSONBytes(MaxwellOutputConfig outputConfig) throws IOException {
+		if ( !outputConfig.includesCommitInfo )
+			return null;
+		return super.toJSONBytes(outputConfig);
+	}
+
+	@Override
+	public KeyAndValue toKeyAndValueBytes(KeyFormat keyFormat, MaxwellOutputConfig outputConfig) throws IOException {
+		if ( !outputConfig.includesCommitInfo )
+			return null;
+		return super.toKeyAndValueBytes(keyFormat, outputConfig);
+	}
+
+	@Override
+	public boolean shouldOutput(MaxwellOutputConfig outputConfig) {
+		return outputConfig.includesCommitInfo;
+	}
+}
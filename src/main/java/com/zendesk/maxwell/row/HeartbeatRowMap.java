@@ -29,6 +29,16 @@ public class HeartbeatRowMap extends RowMap {
 		return null;
 	}
 
+	@Override
+	public byte[] toJSONBytes(MaxwellOutputConfig outputConfig) throws IOException {
+		return null;
+	}
+
+	@Override
+	public KeyAndValue toKeyAndValueBytes(KeyFormat keyFormat, MaxwellOutputConfig outputConfig) throws IOException {
+		return null;
+	}
+
 	@Override
 	public boolean isTXCommit() {
 		return true;
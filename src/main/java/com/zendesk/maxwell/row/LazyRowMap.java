@@ -0,0 +1,373 @@
+package com.zendesk.maxwell.row;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/*
+   A RowMap that keeps the raw values from a binlog rows event and only runs
+   them through ColumnDef#asJSON when somebody looks.
+
+   `getData(column)` (partitioners, bootstrap and heartbeat handling) decodes
+   just the one column.  `toJSON` writes the columns straight from the raw
+   values, in table order and with the table's pre-encoded names (see
+   TableJsonPlan), without building the data maps at all; column types that
+   can (see ColumnDef#writeJSON) skip decoding altogether.  Columns that
+   exclude_columns throws away are looked up in the plan's per-table mask
+   and never decoded, on either path.
+
+   `predecode` lets another thread (see BinlogConnectorRowDecoder) do the
+   decoding ahead of time; the raw values stay around, so every path above
+   works as before, it just finds the columns already done.
+ */
+public class LazyRowMap extends RowMap {
+	private static final List<Pattern> NO_EXCLUDES = Collections.emptyList();
+
+	private transient Table table;
+	private transient Serializable[] values;
+	private transient BitSet includedColumns;
+	private transient Serializable[] oldValues;
+	private transient BitSet oldIncludedColumns;
+	// filled in by predecode(): JSON values by column index, for the columns in `predecoded`.
+	private transient BitSet predecoded;
+	private transient Object[] predecodedValues;
+	private transient Object[] predecodedOldValues;
+	private boolean decoded;
+
+	public LazyRowMap(String type, Table table, Long timestamp, Position nextPosition,
+			Serializable[] values, BitSet includedColumns) {
+		this(type, table, timestamp, nextPosition, values, includedColumns, null, null);
+	}
+
+	public LazyRowMap(String type, Table table, Long timestamp, Position nextPosition,
+			Serializable[] values, BitSet includedColumns,
+			Serializable[] oldValues, BitSet oldIncludedColumns) {
+		super(type, table.getDatabase(), table.getName(), timestamp, table.getPKList(), nextPosition);
+		this.table = table;
+		this.values = values;
+		this.includedColumns = includedColumns;
+		this.oldValues = oldValues;
+		this.oldIncludedColumns = oldIncludedColumns;
+
+		List<ColumnDef> columns = table.getColumnList();
+		addApproximateSizes(columns, values, includedColumns);
+		if ( oldValues != null )
+			addApproximateSizes(columns, oldValues, oldIncludedColumns);
+	}
+
+	private void addApproximateSizes(List<ColumnDef> columns, Serializable[] raw, BitSet included) {
+		int dataIdx = 0;
+		for ( int colIdx = included.nextSetBit(0); colIdx >= 0; colIdx = included.nextSetBit(colIdx + 1) ) {
+			this.approximateSize += approximateKVSize(columns.get(colIdx).getName(), raw[dataIdx++]);
+		}
+	}
+
+	/* decode every column exclude_columns keeps, now, so that nobody has to later. */
+	public void predecode(List<Pattern> excludeColumns) {
+		if ( decoded || predecoded != null )
+			return;
+
+		List<ColumnDef> columns = table.getColumnList();
+		BitSet wanted = (BitSet) table.getJsonPlan().excludedColumns(excludeColumns).clone();
+		wanted.flip(0, columns.size());
+
+		Object[] json = predecodeImage(columns, wanted, values, includedColumns);
+		Object[] oldJson = oldValues == null ? null : predecodeImage(columns, wanted, oldValues, oldIncludedColumns);
+
+		this.predecodedValues = json;
+		this.predecodedOldValues = oldJson;
+		this.predecoded = wanted;
+	}
+
+	private static Object[] predecodeImage(List<ColumnDef> columns, BitSet wanted, Serializable[] raw, BitSet included) {
+		Object[] json = new Object[columns.size()];
+		int dataIdx = 0;
+		for ( int colIdx = included.nextSetBit(0); colIdx >= 0; colIdx = included.nextSetBit(colIdx + 1) ) {
+			Serializable value = raw[dataIdx++];
+			if ( wanted.get(colIdx) )
+				json[colIdx] = asJSON(columns.get(colIdx), value);
+		}
+		return json;
+	}
+
+	private boolean isPredecoded(int colIdx) {
+		return predecoded != null && predecoded.get(colIdx);
+	}
+
+	/* the JSON value of column `colIdx` in the after image, whose raw value is `raw` */
+	private Object dataJSON(ColumnDef cd, int colIdx, Serializable raw) {
+		return isPredecoded(colIdx) ? predecodedValues[colIdx] : asJSON(cd, raw);
+	}
+
+	/* the same, for the before image */
+	private Object oldDataJSON(ColumnDef cd, int colIdx, Serializable raw) {
+		return isPredecoded(colIdx) ? predecodedOldValues[colIdx] : asJSON(cd, raw);
+	}
+
+	@Override
+	protected void decodeColumns(List<Pattern> excludeColumns) {
+		if ( decoded )
+			return;
+
+		BitSet excluded = table.getJsonPlan().excludedColumns(excludeColumns);
+
+		int dataIdx = 0, colIdx = 0;
+		for ( ColumnDef cd : table.getColumnList() ) {
+			if ( includedColumns.get(colIdx) ) {
+				if ( !excluded.get(colIdx) )
+					data.put(cd.getName(), dataJSON(cd, colIdx, values[dataIdx]));
+				dataIdx++;
+			}
+			colIdx++;
+		}
+
+		if ( oldValues != null )
+			decodeOldColumns(excluded);
+
+		this.decoded = true;
+		this.table = null;
+		this.values = this.oldValues = null;
+		this.includedColumns = this.oldIncludedColumns = null;
+		this.predecoded = null;
+		this.predecodedValues = this.predecodedOldValues = null;
+	}
+
+	private void decodeOldColumns(BitSet excluded) {
+		int dataIdx = 0, colIdx = 0;
+
+		for ( ColumnDef cd : table.getColumnList() ) {
+			if ( oldIncludedColumns.get(colIdx) ) {
+				String name = cd.getName();
+
+				if ( !excluded.get(colIdx) ) {
+					Object json = oldDataJSON(cd, colIdx, oldValues[dataIdx]);
+
+					if ( !includedColumns.get(colIdx) ) {
+						/*
+						   If we find a column in the BEFORE image that's *not* present in the AFTER image,
+						   we're running in binlog_row_image = MINIMAL.  In this case, the BEFORE image acts
+						   as a sort of WHERE clause to update rows with the new values (present in the AFTER image),
+						   In this case we should put what's in the "before" image into the "data" section, not the "old".
+						 */
+						data.put(name, json);
+					} else if ( !Objects.equals(data.get(name), json) ) {
+						oldData.put(name, json);
+					}
+				}
+				dataIdx++;
+			}
+			colIdx++;
+		}
+	}
+
+	@Override
+	protected void writeColumnsToJSON(JsonGenerator g, MaxwellOutputConfig outputConfig) throws IOException {
+		if ( decoded ) {
+			super.writeColumnsToJSON(g, outputConfig);
+			return;
+		}
+
+		TableJsonPlan plan = table.getJsonPlan();
+		List<ColumnDef> columns = table.getColumnList();
+		BitSet excluded = plan.excludedColumns(outputConfig.excludeColumns);
+
+		/*
+		   columns whose raw value is the same in both images can't end up in "old",
+		   so only the ones that differ need decoding (to compare them); the rest
+		   can be written straight from the raw value.
+		 */
+		Serializable[] oldRaw = null;
+		BitSet differs = null;
+		Object[] json = null;
+		if ( oldValues != null ) {
+			oldRaw = new Serializable[columns.size()];
+			int oldIdx = 0;
+			for ( int colIdx = oldIncludedColumns.nextSetBit(0); colIdx >= 0; colIdx = oldIncludedColumns.nextSetBit(colIdx + 1) )
+				oldRaw[colIdx] = oldValues[oldIdx++];
+
+			differs = new BitSet(columns.size());
+			json = new Object[columns.size()];
+		}
+
+		g.writeFieldName(DATA_FIELD);
+		g.writeStartObject();
+
+		int dataIdx = 0;
+		for ( int colIdx = includedColumns.nextSetBit(0); colIdx >= 0; colIdx = includedColumns.nextSetBit(colIdx + 1) ) {
+			Serializable raw = values[dataIdx++];
+			if ( excluded.get(colIdx) )
+				continue;
+
+			if ( oldRaw != null && oldIncludedColumns.get(colIdx) && !rawEquals(raw, oldRaw[colIdx]) ) {
+				json[colIdx] = dataJSON(columns.get(colIdx), colIdx, raw);
+				differs.set(colIdx);
+				writeColumnToJSON(g, plan, colIdx, json[colIdx], outputConfig.includesNulls);
+			} else if ( isPredecoded(colIdx) ) {
+				writeColumnToJSON(g, plan, colIdx, predecodedValues[colIdx], outputConfig.includesNulls);
+			} else {
+				writeRawColumnToJSON(g, plan, colIdx, columns.get(colIdx), raw, outputConfig.includesNulls);
+			}
+		}
+
+		// same rules as decodeOldColumns: before-image-only columns are data, changed ones are "old".
+		Object[] oldJson = null;
+		BitSet changed = null;
+		if ( oldValues != null ) {
+			for ( int colIdx = oldIncludedColumns.nextSetBit(0); colIdx >= 0; colIdx = oldIncludedColumns.nextSetBit(colIdx + 1) ) {
+				if ( excluded.get(colIdx) )
+					continue;
+
+				if ( !includedColumns.get(colIdx) ) {
+					if ( isPredecoded(colIdx) )
+						writeColumnToJSON(g, plan, colIdx, predecodedOldValues[colIdx], outputConfig.includesNulls);
+					else
+						writeRawColumnToJSON(g, plan, colIdx, columns.get(colIdx), oldRaw[colIdx], outputConfig.includesNulls);
+				} else if ( differs.get(colIdx) ) {
+					Object value = oldDataJSON(columns.get(colIdx), colIdx, oldRaw[colIdx]);
+					if ( Objects.equals(json[colIdx], value) )
+						continue;
+
+					if ( oldJson == null ) {
+						oldJson = new Object[columns.size()];
+						changed = new BitSet(columns.size());
+					}
+					oldJson[colIdx] = value;
+					changed.set(colIdx);
+				}
+			}
+		}
+
+		g.writeEndObject();
+
+		if ( oldJson != null ) {
+			g.writeFieldName(OLD_FIELD);
+			g.writeStartObject();
+			for ( int colIdx = changed.nextSetBit(0); colIdx >= 0; colIdx = changed.nextSetBit(colIdx + 1) )
+				writeColumnToJSON(g, plan, colIdx, oldJson[colIdx], true);
+			g.writeEndObject();
+		}
+	}
+
+	private static void writeColumnToJSON(JsonGenerator g, TableJsonPlan plan, int colIdx, Object value, boolean includeNull) throws IOException {
+		if ( value == null && !includeNull )
+			return;
+
+		g.writeFieldName(plan.columnName(colIdx));
+		writeValueToJSON(g, value);
+	}
+
+	private static void writeRawColumnToJSON(JsonGenerator g, TableJsonPlan plan, int colIdx, ColumnDef cd, Serializable raw, boolean includeNull) throws IOException {
+		if ( raw != null && cd.writeJSON(g, plan.columnName(colIdx), raw) )
+			return;
+
+		writeColumnToJSON(g, plan, colIdx, asJSON(cd, raw), includeNull);
+	}
+
+	private static boolean rawEquals(Serializable a, Serializable b) {
+		if ( a instanceof byte[] && b instanceof byte[] )
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		return Objects.equals(a, b);
+	}
+
+	private static Object asJSON(ColumnDef cd, Serializable value) {
+		if ( value == null )
+			return null;
+		return cd.asJSON(value);
+	}
+
+	/* index of `key` in the table, or -1.  Like the decoded map, this is case sensitive. */
+	private int columnIndex(String key) {
+		int colIdx = table.findColumnIndex(key);
+		if ( colIdx == -1 || !table.getColumnList().get(colIdx).getName().equals(key) )
+			return -1;
+		return colIdx;
+	}
+
+	/* position of column `colIdx` within a row image that only carries the columns set in `included` */
+	private static int imageIndex(BitSet included, int colIdx) {
+		int dataIdx = 0;
+		for ( int i = included.nextSetBit(0); i >= 0 && i < colIdx; i = included.nextSetBit(i + 1) )
+			dataIdx++;
+		return dataIdx;
+	}
+
+	@Override
+	public Object getData(String key) {
+		if ( decoded )
+			return super.getData(key);
+
+		int colIdx = columnIndex(key);
+		if ( colIdx == -1 )
+			return null;
+
+		ColumnDef cd = table.getColumnList().get(colIdx);
+		if ( includedColumns.get(colIdx) )
+			return dataJSON(cd, colIdx, values[imageIndex(includedColumns, colIdx)]);
+		else if ( oldIncludedColumns != null && oldIncludedColumns.get(colIdx) )
+			return oldDataJSON(cd, colIdx, oldValues[imageIndex(oldIncludedColumns, colIdx)]);
+		else
+			return null;
+	}
+
+	@Override
+	public boolean hasData(String name) {
+		if ( decoded )
+			return super.hasData(name);
+
+		int colIdx = columnIndex(name);
+		if ( colIdx == -1 )
+			return false;
+
+		return includedColumns.get(colIdx)
+			|| (oldIncludedColumns != null && oldIncludedColumns.get(colIdx));
+	}
+
+	@Override
+	public Object getOldData(String key) {
+		decodeColumns(NO_EXCLUDES);
+		return super.getOldData(key);
+	}
+
+	@Override
+	public void putData(String key, Object value) {
+		decodeColumns(NO_EXCLUDES);
+		super.putData(key, value);
+	}
+
+	@Override
+	public void putOldData(String key, Object value) {
+		decodeColumns(NO_EXCLUDES);
+		super.putOldData(key, value);
+	}
+
+	@Override
+	public LinkedHashMap<String, Object> getData() {
+		decodeColumns(NO_EXCLUDES);
+		return super.getData();
+	}
+
+	@Override
+	public LinkedHashMap<String, Object> getOldData() {
+		decodeColumns(NO_EXCLUDES);
+		return super.getOldData();
+	}
+
+	// the table and raw values don't serialize; decode before we get spilled to disk.
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		decodeColumns(NO_EXCLUDES);
+		out.defaultWriteObject();
+	}
+}
@@ -1,20 +1,24 @@
 package com.zendesk.maxwell.row;
 
 import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.util.UniqueId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 
@@ -35,19 +39,39 @@ public class RowMap implements Serializable {
 	private Long serverId;
 	private Long threadId;
 
-	private final LinkedHashMap<String, Object> data;
-	private final LinkedHashMap<String, Object> oldData;
+	final LinkedHashMap<String, Object> data;
+	final LinkedHashMap<String, Object> oldData;
 	private final List<String> pkColumns;
 
 	private static final JsonFactory jsonFactory = new JsonFactory();
 
-	private long approximateSize;
+	private static final SerializableString DATABASE_FIELD = new SerializedString("database");
+	private static final SerializableString TABLE_FIELD = new SerializedString("table");
+	private static final SerializableString TYPE_FIELD = new SerializedString("type");
+	private static final SerializableString TS_FIELD = new SerializedString("ts");
+	private static final SerializableString XID_FIELD = new SerializedString("xid");
+	private static final SerializableString COMMIT_FIELD = new SerializedString("commit");
+	private static final SerializableString POSITION_FIELD = new SerializedString("position");
+	private static final SerializableString GTID_FIELD = new SerializedString("gtid");
+	private static final SerializableString SERVER_ID_FIELD = new SerializedString("server_id");
+	private static final SerializableString THREAD_ID_FIELD = new SerializedString("thread_id");
+	static final SerializableString DATA_FIELD = new SerializedString("data");
+	static final SerializableString OLD_FIELD = new SerializedString("old");
+
+	long approximateSize;
+
+	/* a ByteArrayOutputStream that can hand out pieces of what's been written */
+	private static class OutputBuffer extends ByteArrayOutputStream {
+		byte[] copyOfRange(int from, int to) {
+			return Arrays.copyOfRange(buf, from, to);
+		}
+	}
 
-	private static final ThreadLocal<ByteArrayOutputStream> byteArrayThreadLocal =
-			new ThreadLocal<ByteArrayOutputStream>(){
+	private static final ThreadLocal<OutputBuffer> byteArrayThreadLocal =
+			new ThreadLocal<OutputBuffer>(){
 				@Override
-				protected ByteArrayOutputStream initialValue() {
-					return new ByteArrayOutputStream();
+				protected OutputBuffer initialValue() {
+					return new OutputBuffer();
 				}
 			};
 
@@ -80,50 +104,81 @@ public class RowMap implements Serializable {
 		this.approximateSize = 100L; // more or less 100 bytes of overhead
 	}
 
+	/* a kafka message's key and value, as UTF-8 JSON. */
+	public static class KeyAndValue {
+		public final byte[] key;
+		public final byte[] value;
+
+		public KeyAndValue(byte[] key, byte[] value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
 	public String pkToJson(KeyFormat keyFormat) throws IOException {
-		if ( keyFormat == KeyFormat.HASH )
-			return pkToJsonHash();
-		else
-			return pkToJsonArray();
+		JsonGenerator g = jsonGeneratorThreadLocal.get();
+		writeKey(g, keyFormat);
+		g.flush();
+		return jsonFromStream();
 	}
 
-	private String pkToJsonHash() throws IOException {
+	/*
+	   pkToJson and toJSONBytes in one go: both are written by the same
+	   generator into the same buffer, which is then split in two.  Subclasses
+	   overriding either of those need to override this too.
+	 */
+	public KeyAndValue toKeyAndValueBytes(KeyFormat keyFormat, MaxwellOutputConfig outputConfig) throws IOException {
 		JsonGenerator g = jsonGeneratorThreadLocal.get();
+		OutputBuffer b = byteArrayThreadLocal.get();
 
+		writeKey(g, keyFormat);
+		int keyLength = g.getOutputBuffered();
+		if ( keyLength < 0 ) { // generator can't tell us; pay for a flush.
+			g.flush();
+			keyLength = 0;
+		}
+		keyLength += b.size();
+
+		writeJSON(outputConfig);
+		KeyAndValue kv = new KeyAndValue(b.copyOfRange(0, keyLength), b.copyOfRange(keyLength, b.size()));
+		b.reset();
+		return kv;
+	}
+
+	private void writeKey(JsonGenerator g, KeyFormat keyFormat) throws IOException {
+		if ( keyFormat == KeyFormat.HASH )
+			writeKeyHash(g);
+		else
+			writeKeyArray(g);
+	}
+
+	private void writeKeyHash(JsonGenerator g) throws IOException {
 		g.writeStartObject(); // start of row {
 
 		g.writeStringField("database", database);
 		g.writeStringField("table", table);
 
 		if (pkColumns.isEmpty()) {
-			g.writeStringField("_uuid", UUID.randomUUID().toString());
+			g.writeStringField("_uuid", UniqueId.next());
 		} else {
 			for (String pk : pkColumns) {
-				Object pkValue = null;
-				if ( data.containsKey(pk) )
-					pkValue = data.get(pk);
+				Object pkValue = getData(pk);
 
 				g.writeObjectField("pk." + pk.toLowerCase(), pkValue);
 			}
 		}
 
 		g.writeEndObject(); // end of 'data: { }'
-		g.flush();
-		return jsonFromStream();
 	}
 
-	private String pkToJsonArray() throws IOException {
-		JsonGenerator g = jsonGeneratorThreadLocal.get();
-
+	private void writeKeyArray(JsonGenerator g) throws IOException {
 		g.writeStartArray();
 		g.writeString(database);
 		g.writeString(table);
 
 		g.writeStartArray();
 		for (String pk : pkColumns) {
-			Object pkValue = null;
-			if ( data.containsKey(pk) )
-				pkValue = data.get(pk);
+			Object pkValue = getData(pk);
 
 			g.writeStartObject();
 			g.writeObjectField(pk.toLowerCase(), pkValue);
@@ -131,8 +186,6 @@ public class RowMap implements Serializable {
 		}
 		g.writeEndArray();
 		g.writeEndArray();
-		g.flush();
-		return jsonFromStream();
 	}
 
 	public String pkAsConcatString() {
@@ -141,9 +194,7 @@ public class RowMap implements Serializable {
 		}
 		String keys="";
 		for (String pk : pkColumns) {
-			Object pkValue = null;
-			if (data.containsKey(pk))
-				pkValue = data.get(pk);
+			Object pkValue = getData(pk);
 			if (pkValue != null)
 				keys += pkValue.toString();
 		}
@@ -155,9 +206,7 @@ public class RowMap implements Serializable {
 	public String buildPartitionKey(List<String> partitionColumns, String partitionKeyFallback) {
 		String partitionKey="";
 		for (String pc : partitionColumns) {
-			Object pcValue = null;
-			if (data.containsKey(pc))
-				pcValue = data.get(pc);
+			Object pcValue = getData(pc);
 			if (pcValue != null)
 				partitionKey += pcValue.toString();
 		}
@@ -178,108 +227,171 @@ public class RowMap implements Serializable {
 		}
 	}
 
-	private void writeMapToJSON(String jsonMapName, LinkedHashMap<String, Object> data, boolean includeNullField) throws IOException {
+	private void writeMapToJSON(SerializableString jsonMapName, LinkedHashMap<String, Object> data, boolean includeNullField) throws IOException {
 		JsonGenerator generator = jsonGeneratorThreadLocal.get();
-		generator.writeObjectFieldStart(jsonMapName); // start of jsonMapName: {
+		generator.writeFieldName(jsonMapName);
+		generator.writeStartObject(); // start of jsonMapName: {
 
-		for ( String key: data.keySet() ) {
-			Object value = data.get(key);
+		for ( Map.Entry<String, Object> entry : data.entrySet() ) {
+			Object value = entry.getValue();
 
 			if ( value == null && !includeNullField )
 				continue;
 
-			if ( value instanceof List ) { // sets come back from .asJSON as lists, and jackson can't deal with lists natively.
-				List stringList = (List) value;
-
-				generator.writeArrayFieldStart(key);
-				for ( Object s : stringList )  {
-					generator.writeObject(s);
-				}
-				generator.writeEndArray();
-			} else if ( value instanceof RawJSONString ) {
-				// JSON column type, using binlog-connector's serializers.
-				generator.writeFieldName(key);
-				generator.writeRawValue(((RawJSONString) value).json);
-			} else {
-				generator.writeObjectField(key, value);
-			}
+			generator.writeFieldName(entry.getKey());
+			writeValueToJSON(generator, value);
 		}
 
 		generator.writeEndObject(); // end of 'jsonMapName: { }'
 	}
 
+	static void writeValueToJSON(JsonGenerator generator, Object value) throws IOException {
+		if ( value instanceof List ) { // sets come back from .asJSON as lists, and jackson can't deal with lists natively.
+			List stringList = (List) value;
+
+			generator.writeStartArray();
+			for ( Object s : stringList )  {
+				generator.writeObject(s);
+			}
+			generator.writeEndArray();
+		} else if ( value instanceof RawJSONString ) {
+			// JSON column type, using binlog-connector's serializers.
+			generator.writeRawValue(((RawJSONString) value).json);
+		} else {
+			generator.writeObject(value);
+		}
+	}
+
 	public String toJSON() throws IOException {
 		return toJSON(new MaxwellOutputConfig());
 	}
 
 	public String toJSON(MaxwellOutputConfig outputConfig) throws IOException {
+		writeJSON(outputConfig);
+		return jsonFromStream();
+	}
+
+	/*
+	   the same JSON as toJSON, as the UTF-8 bytes jackson wrote, without
+	   decoding them into a String first.  Subclasses overriding toJSON need to
+	   override this too.
+	 */
+	public byte[] toJSONBytes(MaxwellOutputConfig outputConfig) throws IOException {
+		writeJSON(outputConfig);
+		return bytesFromStream();
+	}
+
+	public ByteBuffer toJSONByteBuffer(MaxwellOutputConfig outputConfig) throws IOException {
+		byte[] bytes = toJSONBytes(outputConfig);
+		return bytes == null ? null : ByteBuffer.wrap(bytes);
+	}
+
+	private void writeJSON(MaxwellOutputConfig outputConfig) throws IOException {
 		JsonGenerator g = jsonGeneratorThreadLocal.get();
 
 		g.writeStartObject(); // start of row {
 
-		g.writeStringField("database", this.database);
-		g.writeStringField("table", this.table);
-		g.writeStringField("type", this.rowType);
-		g.writeNumberField("ts", this.timestamp);
+		g.writeFieldName(DATABASE_FIELD);
+		g.writeString(this.database);
+		g.writeFieldName(TABLE_FIELD);
+		g.writeString(this.table);
+		g.writeFieldName(TYPE_FIELD);
+		g.writeString(this.rowType);
+		g.writeFieldName(TS_FIELD);
+		g.writeNumber(this.timestamp);
 
 		if ( outputConfig.includesCommitInfo ) {
-			if ( this.xid != null )
-				g.writeNumberField("xid", this.xid);
+			if ( this.xid != null ) {
+				g.writeFieldName(XID_FIELD);
+				g.writeNumber(this.xid);
+			}
 
-			if ( this.txCommit )
-				g.writeBooleanField("commit", true);
+			if ( this.txCommit ) {
+				g.writeFieldName(COMMIT_FIELD);
+				g.writeBoolean(true);
+			}
 		}
 
 		BinlogPosition binlogPosition = this.nextPosition.getBinlogPosition();
-		if ( outputConfig.includesBinlogPosition )
-			g.writeStringField("position", binlogPosition.getFile() + ":" + binlogPosition.getOffset());
+		if ( outputConfig.includesBinlogPosition ) {
+			g.writeFieldName(POSITION_FIELD);
+			g.writeString(binlogPosition.getFile() + ":" + binlogPosition.getOffset());
+		}
 
-		if ( outputConfig.includesGtidPosition)
-			g.writeStringField("gtid", binlogPosition.getGtid());
+		if ( outputConfig.includesGtidPosition) {
+			g.writeFieldName(GTID_FIELD);
+			g.writeString(binlogPosition.getGtid());
+		}
 
 		if ( outputConfig.includesServerId && this.serverId != null ) {
-			g.writeNumberField("server_id", this.serverId);
+			g.writeFieldName(SERVER_ID_FIELD);
+			g.writeNumber(this.serverId);
 		}
 
 		if ( outputConfig.includesThreadId && this.threadId != null ) {
-			g.writeNumberField("thread_id", this.threadId);
+			g.writeFieldName(THREAD_ID_FIELD);
+			g.writeNumber(this.threadId);
 		}
 
+		writeColumnsToJSON(g, outputConfig);
+
+		g.writeEndObject(); // end of row
+		g.flush();
+	}
+
+	/* the "data" and (if there's anything in it) "old" sections. */
+	protected void writeColumnsToJSON(JsonGenerator g, MaxwellOutputConfig outputConfig) throws IOException {
+		decodeColumns(outputConfig.excludeColumns);
+
 		if ( outputConfig.excludeColumns.size() > 0 ) {
-			// NOTE: to avoid concurrent modification.
-			Set<String> keys = new HashSet<>();
-			keys.addAll(this.data.keySet());
-			keys.addAll(this.oldData.keySet());
-
-			for ( Pattern p : outputConfig.excludeColumns ) {
-				for ( String key : keys ) {
-					if ( p.matcher(key).matches() ) {
-						this.data.remove(key);
-						this.oldData.remove(key);
-					}
-				}
-			}
+			removeExcluded(this.data, outputConfig.excludeColumns);
+			removeExcluded(this.oldData, outputConfig.excludeColumns);
 		}
 
-		writeMapToJSON("data", this.data, outputConfig.includesNulls);
+		writeMapToJSON(DATA_FIELD, this.data, outputConfig.includesNulls);
 
 		if ( !this.oldData.isEmpty() ) {
-			writeMapToJSON("old", this.oldData, true);
+			writeMapToJSON(OLD_FIELD, this.oldData, true);
 		}
+	}
 
-		g.writeEndObject(); // end of row
-		g.flush();
+	private static void removeExcluded(LinkedHashMap<String, Object> map, List<Pattern> excludeColumns) {
+		Iterator<String> keys = map.keySet().iterator();
+		while ( keys.hasNext() ) {
+			if ( isExcluded(keys.next(), excludeColumns) )
+				keys.remove();
+		}
+	}
 
-		return jsonFromStream();
+	static boolean isExcluded(String name, List<Pattern> excludeColumns) {
+		for ( Pattern p : excludeColumns ) {
+			if ( p.matcher(name).matches() )
+				return true;
+		}
+		return false;
 	}
 
-	private String jsonFromStream() {
+	private String jsonFromStream() throws UnsupportedEncodingException {
 		ByteArrayOutputStream b = byteArrayThreadLocal.get();
-		String s = b.toString();
+		String s = b.toString("UTF-8"); // jackson writes UTF-8 to streams
 		b.reset();
 		return s;
 	}
 
+	private byte[] bytesFromStream() {
+		ByteArrayOutputStream b = byteArrayThreadLocal.get();
+		byte[] bytes = b.toByteArray();
+		b.reset();
+		return bytes;
+	}
+
+	/*
+	   hook for rows that hold on to raw binlog values (see LazyRowMap):
+	   fill in `data` and `oldData`.  Columns matching `excludeColumns` are about
+	   to be dropped and need not be decoded.
+	 */
+	protected void decodeColumns(List<Pattern> excludeColumns) { }
+
 	public Object getData(String key) {
 		return this.data.get(key);
 	}
@@ -289,13 +401,15 @@ public class RowMap implements Serializable {
 		return approximateSize;
 	}
 
-	private long approximateKVSize(String key, Object value) {
+	long approximateKVSize(String key, Object value) {
 		long length = 0;
 		length += 40; // overhead.  Whynot.
 		length += key.length() * 2;
 
 		if ( value instanceof String ) {
 			length += ((String) value).length() * 2;
+		} else if ( value instanceof byte[] ) {
+			length += ((byte[]) value).length;
 		} else {
 			length += 64;
 		}
@@ -375,6 +489,10 @@ public class RowMap implements Serializable {
 		return this.rowType;
 	}
 
+	List<String> getPKColumns() {
+		return this.pkColumns;
+	}
+
 	// determines whether there is anything for the producer to output
 	// override this for extended classes that don't output a value
 	// return false when there is a heartbeat row or other row with suppressed output
@@ -32,6 +32,13 @@ public class RowMapBufferByTable {
 		getBuffer(databaseName, tableName).flushToDisk();
 	}
 
+	/* drop the table's buffer, along with anything it still has spilled to disk. */
+	public void close(String databaseName, String tableName) {
+		Buffer buffer = buffers.remove(getKey(databaseName, tableName));
+		if ( buffer != null )
+			buffer.close();
+	}
+
 	private Buffer getBuffer(RowMap row) throws IOException {
 		return getBuffer(getKey(row));
 	}
@@ -0,0 +1,284 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.util.ListWithDiskBuffer;
+import com.zendesk.maxwell.util.SpillInput;
+import com.zendesk.maxwell.util.SpillOutput;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/*
+   spill format for RowMapBuffer.
+
+   Plain rows (and LazyRowMaps, which are decoded first and come back as plain
+   rows) and CommitRowMaps are written field by field, with database, table and
+   column names going through SpillOutput's per-file dictionary.  Anything else
+   (DDLMap, say) falls back to java serialization.
+ */
+public class RowMapCodec implements ListWithDiskBuffer.Codec<RowMap> {
+	private static final List<Pattern> NO_EXCLUDES = Collections.emptyList();
+
+	private static final int ROW = 0;
+	private static final int COMMIT_ROW = 1;
+	private static final int SERIALIZED_ROW = 2;
+
+	private static final int NULL = 0;
+	private static final int STRING = 1;
+	private static final int LONG = 2;
+	private static final int INTEGER = 3;
+	private static final int DOUBLE = 4;
+	private static final int FLOAT = 5;
+	private static final int TRUE = 6;
+	private static final int FALSE = 7;
+	private static final int BIG_DECIMAL = 8;
+	private static final int BIG_INTEGER = 9;
+	private static final int LIST = 10;
+	private static final int RAW_JSON = 11;
+	private static final int BYTES = 12;
+	private static final int SERIALIZED = 13;
+
+	// rows of one transaction share a gtid set, which can be long; only write it when it changes.
+	private String lastGtidSetWritten, lastGtidSetRead;
+
+	@Override
+	public void write(RowMap r, SpillOutput out) throws IOException {
+		Class<?> klass = r.getClass();
+		if ( klass == CommitRowMap.class ) {
+			out.putByte(COMMIT_ROW);
+		} else if ( klass == RowMap.class || klass == LazyRowMap.class ) {
+			out.putByte(ROW);
+		} else {
+			out.putByte(SERIALIZED_ROW);
+			out.putBytes(serialize(r));
+			return;
+		}
+
+		r.decodeColumns(NO_EXCLUDES);
+
+		out.putName(r.getRowType());
+		out.putName(r.getDatabase());
+		out.putName(r.getTable());
+		putNullableLong(out, r.getTimestamp());
+		writePosition(r.getPosition(), out);
+
+		putNullableLong(out, r.getXid());
+		out.putBoolean(r.isTXCommit());
+		putNullableLong(out, r.getServerId());
+		putNullableLong(out, r.getThreadId());
+
+		List<String> pkColumns = r.getPKColumns();
+		out.putVarLong(pkColumns.size());
+		for ( String pk : pkColumns )
+			out.putName(pk);
+
+		writeMap(r.data, out);
+		writeMap(r.oldData, out);
+		out.putVarLong(r.approximateSize);
+	}
+
+	@Override
+	public RowMap read(SpillInput in) throws IOException {
+		int kind = in.getByte();
+		if ( kind == SERIALIZED_ROW )
+			return (RowMap) deserialize(in.getBytes());
+
+		String rowType = in.getName();
+		String database = in.getName();
+		String table = in.getName();
+		Long timestamp = getNullableLong(in);
+		Position position = readPosition(in);
+
+		Long xid = getNullableLong(in);
+		boolean txCommit = in.getBoolean();
+		Long serverId = getNullableLong(in);
+		Long threadId = getNullableLong(in);
+
+		int pkCount = (int) in.getVarLong();
+		List<String> pkColumns = new ArrayList<>(pkCount);
+		for ( int i = 0; i < pkCount; i++ )
+			pkColumns.add(in.getName());
+
+		RowMap r;
+		if ( kind == COMMIT_ROW )
+			r = new CommitRowMap(database, table, timestamp, position);
+		else
+			r = new RowMap(rowType, database, table, timestamp, pkColumns, position);
+
+		r.setXid(xid);
+		if ( txCommit )
+			r.setTXCommit();
+		r.setServerId(serverId);
+		r.setThreadId(threadId);
+
+		readMap(r.data, in);
+		readMap(r.oldData, in);
+		r.approximateSize = in.getVarLong();
+		return r;
+	}
+
+	private void writePosition(Position position, SpillOutput out) {
+		BinlogPosition binlogPosition = position.getBinlogPosition();
+		String gtidSet = binlogPosition.getGtidSetStr();
+
+		out.putLong(position.getLastHeartbeatRead());
+		out.putName(binlogPosition.getFile());
+		out.putVarLong(binlogPosition.getOffset());
+		out.putString(binlogPosition.getGtid());
+
+		if ( gtidSet != null && gtidSet.equals(lastGtidSetWritten) ) {
+			out.putBoolean(false);
+		} else {
+			out.putBoolean(true);
+			out.putString(gtidSet);
+			lastGtidSetWritten = gtidSet;
+		}
+	}
+
+	private Position readPosition(SpillInput in) {
+		long lastHeartbeatRead = in.getLong();
+		String file = in.getName();
+		long offset = in.getVarLong();
+		String gtid = in.getString();
+
+		if ( in.getBoolean() )
+			lastGtidSetRead = in.getString();
+
+		return new Position(new BinlogPosition(lastGtidSetRead, gtid, offset, file), lastHeartbeatRead);
+	}
+
+	private void writeMap(LinkedHashMap<String, Object> map, SpillOutput out) throws IOException {
+		out.putVarLong(map.size());
+		for ( Map.Entry<String, Object> e : map.entrySet() ) {
+			out.putName(e.getKey());
+			writeValue(e.getValue(), out);
+		}
+	}
+
+	private void readMap(LinkedHashMap<String, Object> map, SpillInput in) throws IOException {
+		long size = in.getVarLong();
+		for ( long i = 0; i < size; i++ ) {
+			String key = in.getName();
+			map.put(key, readValue(in));
+		}
+	}
+
+	private void writeValue(Object value, SpillOutput out) throws IOException {
+		if ( value == null ) {
+			out.putByte(NULL);
+		} else if ( value instanceof String ) {
+			out.putByte(STRING);
+			out.putString((String) value);
+		} else if ( value instanceof Long ) {
+			out.putByte(LONG);
+			out.putLong((Long) value);
+		} else if ( value instanceof Integer ) {
+			out.putByte(INTEGER);
+			out.putLong((Integer) value);
+		} else if ( value instanceof Double ) {
+			out.putByte(DOUBLE);
+			out.putDouble((Double) value);
+		} else if ( value instanceof Float ) {
+			out.putByte(FLOAT);
+			out.putFloat((Float) value);
+		} else if ( value instanceof Boolean ) {
+			out.putByte((Boolean) value ? TRUE : FALSE);
+		} else if ( value instanceof BigDecimal ) {
+			out.putByte(BIG_DECIMAL);
+			out.putString(value.toString());
+		} else if ( value instanceof BigInteger ) {
+			out.putByte(BIG_INTEGER);
+			out.putBytes(((BigInteger) value).toByteArray());
+		} else if ( value instanceof List ) {
+			List list = (List) value;
+			out.putByte(LIST);
+			out.putVarLong(list.size());
+			for ( Object o : list )
+				writeValue(o, out);
+		} else if ( value instanceof RawJSONString ) {
+			out.putByte(RAW_JSON);
+			out.putString(((RawJSONString) value).json);
+		} else if ( value instanceof byte[] ) {
+			out.putByte(BYTES);
+			out.putBytes((byte[]) value);
+		} else {
+			out.putByte(SERIALIZED);
+			out.putBytes(serialize(value));
+		}
+	}
+
+	private Object readValue(SpillInput in) throws IOException {
+		int type = in.getByte();
+		switch ( type ) {
+			case NULL:
+				return null;
+			case STRING:
+				return in.getString();
+			case LONG:
+				return in.getLong();
+			case INTEGER:
+				return (int) in.getLong();
+			case DOUBLE:
+				return in.getDouble();
+			case FLOAT:
+				return in.getFloat();
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case BIG_DECIMAL:
+				return new BigDecimal(in.getString());
+			case BIG_INTEGER:
+				return new BigInteger(in.getBytes());
+			case LIST:
+				int size = (int) in.getVarLong();
+				List<Object> list = new ArrayList<>(size);
+				for ( int i = 0; i < size; i++ )
+					list.add(readValue(in));
+				return list;
+			case RAW_JSON:
+				return new RawJSONString(in.getString());
+			case BYTES:
+				return in.getBytes();
+			case SERIALIZED:
+				return deserialize(in.getBytes());
+			default:
+				throw new IOException("unknown value type in spill file: " + type);
+		}
+	}
+
+	private static void putNullableLong(SpillOutput out, Long l) {
+		out.putBoolean(l != null);
+		if ( l != null )
+			out.putLong(l);
+	}
+
+	private static Long getNullableLong(SpillInput in) {
+		return in.getBoolean() ? in.getLong() : null;
+	}
+
+	private static byte[] serialize(Object o) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream os = new ObjectOutputStream(bytes);
+		os.writeObject(o);
+		os.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException {
+		ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return is.readObject();
+		} catch ( ClassNotFoundException e ) {
+			throw new IOException(e);
+		}
+	}
+}
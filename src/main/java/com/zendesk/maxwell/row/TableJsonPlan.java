@@ -0,0 +1,81 @@
+package com.zendesk.maxwell.row;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+   what RowMap#toJSON needs to know about one version of a table, worked out
+   once instead of on every row: the column names, in column order, with their
+   JSON escaping and UTF-8 encoding done up front (jackson's SerializedString
+   caches both), and which of the columns exclude_columns throws away.
+
+   Get one with Table#getJsonPlan(); tables drop theirs when their columns change.
+ */
+public class TableJsonPlan {
+	private static final BitSet NO_COLUMNS = new BitSet();
+
+	private final String[] names;
+	private final SerializableString[] columnNames;
+	private volatile ExcludedColumns excluded;
+
+	/* the columns a list of exclude patterns matches.  Immutable, so it can be swapped in without locking. */
+	private static class ExcludedColumns {
+		final List<Pattern> patterns;
+		final int patternCount;
+		final BitSet mask;
+
+		ExcludedColumns(List<Pattern> patterns, BitSet mask) {
+			this.patterns = patterns;
+			this.patternCount = patterns.size();
+			this.mask = mask;
+		}
+
+		boolean isFor(List<Pattern> excludeColumns) {
+			return patterns == excludeColumns && patternCount == excludeColumns.size();
+		}
+	}
+
+	public TableJsonPlan(Table table) {
+		List<ColumnDef> columns = table.getColumnList();
+
+		this.names = new String[columns.size()];
+		this.columnNames = new SerializableString[columns.size()];
+		for ( int i = 0; i < columns.size(); i++ ) {
+			this.names[i] = columns.get(i).getName();
+			this.columnNames[i] = new SerializedString(this.names[i]);
+		}
+	}
+
+	public SerializableString columnName(int index) {
+		return columnNames[index];
+	}
+
+	/*
+	   indexes of the columns matching any of `excludeColumns`.  The patterns come
+	   from the (long-lived) output config, so the answer is kept for as long as
+	   we keep being asked about the same list.  Don't modify the returned set.
+	 */
+	public BitSet excludedColumns(List<Pattern> excludeColumns) {
+		if ( excludeColumns.isEmpty() )
+			return NO_COLUMNS;
+
+		ExcludedColumns e = this.excluded;
+		if ( e == null || !e.isFor(excludeColumns) ) {
+			BitSet mask = new BitSet(names.length);
+			for ( int i = 0; i < names.length; i++ ) {
+				if ( RowMap.isExcluded(names[i], excludeColumns) )
+					mask.set(i);
+			}
+
+			e = new ExcludedColumns(excludeColumns, mask);
+			this.excluded = e;
+		}
+		return e.mask;
+	}
+}
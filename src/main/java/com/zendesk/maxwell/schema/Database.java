@@ -1,6 +1,7 @@
 package com.zendesk.maxwell.schema;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import com.zendesk.maxwell.CaseSensitivity;
@@ -10,6 +11,8 @@ import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 public class Database {
 	private final String name;
 	private final List<Table> tableList;
+	// tables by name, keyed according to `sensitivity`; see indexKey()
+	private final HashMap<String, Table> tableIndex;
 	private String charset;
 	private CaseSensitivity sensitivity;
 
@@ -19,7 +22,9 @@ public class Database {
 			this.tableList = new ArrayList<>();
 		else
 			this.tableList = tables;
+		this.tableIndex = new HashMap<>();
 		this.charset = charset;
+		reindexTables();
 	}
 
 	public Database(String name, String charset) {
@@ -34,19 +39,29 @@ public class Database {
 		return names;
 	}
 
-	private boolean compareTableNames(String a, String b) {
+	private String indexKey(String tableName) {
 		if ( sensitivity == CaseSensitivity.CASE_SENSITIVE )
-			return a.equals(b);
+			return tableName;
 		else
-			return a.toLowerCase().equals(b.toLowerCase());
+			return tableName.toLowerCase();
+	}
+
+	private void indexTable(Table t) {
+		String key = indexKey(t.getName());
+
+		// like the list scan this replaced, the first table added under a name wins.
+		if ( !tableIndex.containsKey(key) )
+			tableIndex.put(key, t);
+	}
+
+	private void reindexTables() {
+		tableIndex.clear();
+		for ( Table t : this.tableList )
+			indexTable(t);
 	}
 
 	public Table findTable(String name) {
-		for ( Table t: this.tableList ) {
-			if ( compareTableNames(name, t.getName()))
-				return t;
-		}
-		return null;
+		return tableIndex.get(indexKey(name));
 	}
 
 	public Table findTableOrThrow(String table) throws InvalidSchemaError {
@@ -63,8 +78,19 @@ public class Database {
 
 	public void removeTable(String name) {
 		Table t = findTable(name);
-		if ( t != null )
-			tableList.remove(t);
+		if ( t == null )
+			return;
+
+		tableList.remove(t);
+
+		String key = indexKey(name);
+		tableIndex.remove(key);
+		for ( Table other : this.tableList ) {
+			if ( indexKey(other.getName()).equals(key) ) {
+				tableIndex.put(key, other);
+				break;
+			}
+		}
 	}
 
 	public Database copy() {
@@ -112,6 +138,7 @@ public class Database {
 		return name;
 	}
 
+	/* callers must go through addTable/removeTable to change the list, or lookups will miss. */
 	public List<Table> getTableList() {
 		return tableList;
 	}
@@ -119,6 +146,7 @@ public class Database {
 	public void addTable(Table table) {
 		table.setDatabase(this.name);
 		this.tableList.add(table);
+		indexTable(table);
 	}
 
 	public Table buildTable(String name, String charset, List<ColumnDef> list, List<String> pks) {
@@ -130,6 +158,7 @@ public class Database {
 
 		Table t = new Table(this.name, name, charset, list, pks);
 		this.tableList.add(t);
+		indexTable(t);
 		return t;
 	}
 
@@ -139,5 +168,6 @@ public class Database {
 
 	public void setSensitivity(CaseSensitivity sensitivity) {
 		this.sensitivity = sensitivity;
+		reindexTables();
 	}
 }
@@ -6,11 +6,14 @@ import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 
 public class Schema {
 	private final ArrayList<Database> databases;
+	// databases by name, keyed according to `sensitivity`; see indexKey()
+	private final HashMap<String, Database> databaseIndex;
 	private final String charset;
 	private final CaseSensitivity sensitivity;
 
@@ -18,11 +21,13 @@ public class Schema {
 		this.sensitivity = sensitivity;
 		this.charset = charset;
 		this.databases = new ArrayList<>();
+		this.databaseIndex = new HashMap<>();
 
 		for ( Database d : databases )
 			addDatabase(d);
 	}
 
+	/* callers must go through addDatabase/removeDatabase to change the list, or lookups will miss. */
 	public List<Database> getDatabases() { return this.databases; }
 
 	public List<String> getDatabaseNames () {
@@ -34,16 +39,15 @@ public class Schema {
 		return names;
 	}
 
-	public Database findDatabase(String string) {
-		for ( Database d: this.databases ) {
-			if ( sensitivity == CaseSensitivity.CASE_SENSITIVE ) {
-				if ( d.getName().equals(string) ) return d;
-			} else {
-				if ( d.getName().toLowerCase().equals(string.toLowerCase()) ) return d;
-			}
-		}
+	private String indexKey(String name) {
+		if ( sensitivity == CaseSensitivity.CASE_SENSITIVE )
+			return name;
+		else
+			return name.toLowerCase();
+	}
 
-		return null;
+	public Database findDatabase(String string) {
+		return databaseIndex.get(indexKey(string));
 	}
 
 	public Database findDatabaseOrThrow(String name) throws InvalidSchemaError {
@@ -60,6 +64,28 @@ public class Schema {
 	public void addDatabase(Database d) {
 		d.setSensitivity(sensitivity);
 		this.databases.add(d);
+
+		// like the list scan this replaced, the first database added under a name wins.
+		String key = indexKey(d.getName());
+		if ( !databaseIndex.containsKey(key) )
+			databaseIndex.put(key, d);
+	}
+
+	public void removeDatabase(Database d) {
+		if ( !this.databases.remove(d) )
+			return;
+
+		String key = indexKey(d.getName());
+		if ( databaseIndex.get(key) != d )
+			return;
+
+		databaseIndex.remove(key);
+		for ( Database other : this.databases ) {
+			if ( indexKey(other.getName()).equals(key) ) {
+				databaseIndex.put(key, other);
+				break;
+			}
+		}
 	}
 
 	private void diffDBList(List<String> diff, Schema a, Schema b, String nameA, String nameB, boolean recurse) {
@@ -2,6 +2,7 @@ package com.zendesk.maxwell.schema;
 
 import java.util.*;
 
+import com.zendesk.maxwell.row.TableJsonPlan;
 import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
 import com.zendesk.maxwell.schema.ddl.ColumnPosition;
 
@@ -26,6 +27,7 @@ public class Table {
 	private List<String> normalizedPKColumnNames;
 
 	private HashMap<String, Integer> columnOffsetMap;
+	private volatile TableJsonPlan jsonPlan;
 	@JsonIgnore
 	public int pkIndex;
 
@@ -50,6 +52,16 @@ public class Table {
 	@JsonProperty("columns")
 	public void setColumnList(List<ColumnDef> list) {
 		this.columns = new TableColumnList(list);
+		this.jsonPlan = null;
+	}
+
+	/* built lazily, and thrown away whenever the column list changes. */
+	@JsonIgnore
+	public TableJsonPlan getJsonPlan() {
+		TableJsonPlan plan = this.jsonPlan;
+		if ( plan == null )
+			this.jsonPlan = plan = new TableJsonPlan(this);
+		return plan;
 	}
 
 	@JsonIgnore
@@ -88,7 +100,7 @@ public class Table {
 		ArrayList<String> pkList = new ArrayList<>();
 
 		for ( ColumnDef c : columns ) {
-			list.add(c);
+			list.add(c.clone());
 		}
 
 		for ( String s : pkColumnNames ) {
@@ -215,16 +227,18 @@ public class Table {
 
 	public void addColumn(int index, ColumnDef definition) {
 		columns.add(index, definition);
+		this.jsonPlan = null;
 	}
 
 	public void addColumn(ColumnDef definition) {
-		columns.add(columns.size(), definition);
+		addColumn(columns.size(), definition);
 	}
 
 	public void removeColumn(int idx) {
 		ColumnDef toRemove = columns.get(idx);
 		removePKColumn(toRemove.getName());
 		columns.remove(idx);
+		this.jsonPlan = null;
 	}
 
 	public void changeColumn(int idx, ColumnPosition position, ColumnDef definition) throws InvalidSchemaError {
@@ -235,6 +249,7 @@ public class Table {
 
 		columns.remove(idx);
 		columns.add(position.index(this, idx), definition);
+		this.jsonPlan = null;
 	}
 
 	public void setDatabase(String database) {
@@ -1,12 +1,16 @@
 package com.zendesk.maxwell.schema.columndef;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+import java.io.IOException;
+
 @JsonSerialize(using=ColumnDefSerializer.class)
 @JsonDeserialize(using=ColumnDefDeserializer.class)
 
-public abstract class ColumnDef {
+public abstract class ColumnDef implements Cloneable {
 	protected String name;
 	protected String type;
 
@@ -19,6 +23,19 @@ public abstract class ColumnDef {
 		this.pos = pos;
 	}
 
+	/*
+	   a column def of its own.  Tables are copied before an ALTER changes them,
+	   and rows built against the old table decode with its columns later on.
+	 */
+	@Override
+	public ColumnDef clone() {
+		try {
+			return (ColumnDef) super.clone();
+		} catch ( CloneNotSupportedException e ) {
+			throw new RuntimeException(e); // we're Cloneable
+		}
+	}
+
 	public abstract boolean matchesMysqlType(int type);
 	public abstract String toSQL(Object value);
 
@@ -26,6 +43,16 @@ public abstract class ColumnDef {
 		return value;
 	}
 
+	/*
+	   write `fieldName` and the (non-null, raw binlog) `value` to `g`, exactly as
+	   asJSON(value) would come out, but without building asJSON's result first.
+	   Types that can't, or can't for this value, return false having written
+	   nothing, and the caller goes through asJSON instead.
+	 */
+	public boolean writeJSON(JsonGenerator g, SerializableString fieldName, Object value) throws IOException {
+		return false;
+	}
+
 	public static ColumnDef build(String name, String charset, String type, int pos, boolean signed, String enumValues[], Long columnLength) {
 		switch(type) {
 		case "tinyint":
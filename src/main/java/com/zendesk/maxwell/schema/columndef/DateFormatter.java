@@ -1,23 +1,55 @@
 package com.zendesk.maxwell.schema.columndef;
 
 import java.text.SimpleDateFormat;
+import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
+/*
+   Formats DATE, DATETIME/TIMESTAMP and TIME values.
+
+   The binlog connector hands us UTC microseconds since the epoch as a Long;
+   those are formatted arithmetically, straight into a per-thread char buffer,
+   with no locking and no Timestamp/Calendar in between.  Everything else
+   (java.sql values from bootstrapping, and the pre-1582 dates the connector
+   computes on the julian calendar) goes through a per-thread SimpleDateFormat,
+   which is what every value used to take.  Both print exactly the same thing.
+ */
 public class DateFormatter {
-	private static SimpleDateFormat makeFormatter(String format, boolean utc) {
-		SimpleDateFormat dateFormatter = new SimpleDateFormat(format);
-		if ( utc )
-			dateFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+	private static ThreadLocal<SimpleDateFormat> makeFormatter(final String format, final boolean utc) {
+		return new ThreadLocal<SimpleDateFormat>() {
+			@Override
+			protected SimpleDateFormat initialValue() {
+				SimpleDateFormat dateFormatter = new SimpleDateFormat(format);
+				if ( utc )
+					dateFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
 
-		return dateFormatter;
+				return dateFormatter;
+			}
+		};
 	}
 
-	private static SimpleDateFormat dateFormatter           = makeFormatter("yyyy-MM-dd", false);
-	private static SimpleDateFormat dateUTCFormatter        = makeFormatter("yyyy-MM-dd", true);
-	private static SimpleDateFormat dateTimeFormatter       = makeFormatter("yyyy-MM-dd HH:mm:ss", false);
-	private static SimpleDateFormat dateTimeUTCFormatter    = makeFormatter("yyyy-MM-dd HH:mm:ss", true);
+	private static final ThreadLocal<SimpleDateFormat> dateFormatter           = makeFormatter("yyyy-MM-dd", false);
+	private static final ThreadLocal<SimpleDateFormat> dateUTCFormatter        = makeFormatter("yyyy-MM-dd", true);
+	private static final ThreadLocal<SimpleDateFormat> dateTimeFormatter       = makeFormatter("yyyy-MM-dd HH:mm:ss", false);
+	private static final ThreadLocal<SimpleDateFormat> dateTimeUTCFormatter    = makeFormatter("yyyy-MM-dd HH:mm:ss", true);
+
+	// "yyyy-MM-dd HH:mm:ss.ffffff" is 26 chars.
+	private static final ThreadLocal<char[]> threadLocalBuffer = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[32];
+		}
+	};
+
+	private static final long MICROS_PER_SECOND = 1000000L;
+	private static final long MICROS_PER_DAY = 86400L * MICROS_PER_SECOND;
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000, 100000, 1000000 };
+
+	// before this, java's calendar (and the connector) switch to julian dates; leave those to SimpleDateFormat.
+	private static final long GREGORIAN_CUTOVER_MICROS = new GregorianCalendar().getGregorianChange().getTime() * 1000L;
 
 	public static Timestamp extractTimestamp(Object value) {
 		if (value instanceof Long) {
@@ -37,37 +69,166 @@ public class DateFormatter {
 	}
 
 	private static Long MIN_DATE = Timestamp.valueOf("1000-01-01 00:00:00").getTime();
-	private static String extractAndFormat(SimpleDateFormat formatter, Object value) {
-		synchronized(formatter) {
-			Timestamp t = extractTimestamp(value);
-			if ( t.getTime() < MIN_DATE )
-				return null;
-			else
-				return formatter.format(t);
-		}
+	private static String extractAndFormat(SimpleDateFormat formatter, Timestamp t) {
+		if ( t.getTime() < MIN_DATE )
+			return null;
+		else
+			return formatter.format(t);
+	}
+
+	private static boolean isFastPath(Object value) {
+		return value instanceof Long && (Long) value >= GREGORIAN_CUTOVER_MICROS;
 	}
 
 	public static String formatDate(Object value) {
+		if ( isFastPath(value) ) {
+			char[] buf = threadLocalBuffer.get();
+			int len = writeDate(buf, 0, floorDiv((Long) value, MICROS_PER_DAY));
+			return new String(buf, 0, len);
+		}
+
 		SimpleDateFormat formatter;
 
 		// if value is a Long, this means it's coming back from shyko's binlog connector
 		// and we should treat it as a UTC timestamp.
 		if ( value instanceof Long )
-			formatter = dateUTCFormatter;
+			formatter = dateUTCFormatter.get();
 		else
-			formatter = dateFormatter;
+			formatter = dateFormatter.get();
 
-		return extractAndFormat(formatter, value);
+		return extractAndFormat(formatter, extractTimestamp(value));
 	}
 
 	public static String formatDateTime(Object value) {
+		return formatDateTime(value, 0L);
+	}
+
+	/* "yyyy-MM-dd HH:mm:ss", plus `fractionalDigits` digits of fractional seconds if there are any. */
+	public static String formatDateTime(Object value, Long fractionalDigits) {
+		if ( isFastPath(value) ) {
+			long micros = (Long) value;
+			long days = floorDiv(micros, MICROS_PER_DAY);
+			long microsOfDay = micros - days * MICROS_PER_DAY;
+
+			char[] buf = threadLocalBuffer.get();
+			int len = writeDate(buf, 0, days);
+			buf[len++] = ' ';
+			len = writeTimeOfDay(buf, len, microsOfDay, fractionalDigits);
+			return new String(buf, 0, len);
+		}
+
 		SimpleDateFormat formatter;
 
 		if ( value instanceof Long )
-			formatter = dateTimeUTCFormatter;
+			formatter = dateTimeUTCFormatter.get();
 		else
-			formatter = dateTimeFormatter;
+			formatter = dateTimeFormatter.get();
+
+		Timestamp t = extractTimestamp(value);
+		String dateString = extractAndFormat(formatter, t);
+		if ( dateString == null )
+			return null;
+		else
+			return appendFractionalSeconds(dateString, t.getNanos(), fractionalDigits);
+	}
+
+	/*
+	   "HH:mm:ss", plus `fractionalDigits` digits of fractional seconds if there are any.
+	   Like java.sql.Time#toString, times are shown in the JVM's timezone.
+	 */
+	public static String formatTime(Object value, Long fractionalDigits) {
+		if ( value instanceof Long && (Long) value >= 0 ) {
+			long micros = (Long) value;
+			long millis = micros / 1000;
+			long localMillis = millis + TimeZone.getDefault().getOffset(millis);
+			long localMicros = floorDiv(localMillis, 1000) * MICROS_PER_SECOND + micros % MICROS_PER_SECOND;
+
+			char[] buf = threadLocalBuffer.get();
+			int len = writeTimeOfDay(buf, 0, localMicros - floorDiv(localMicros, MICROS_PER_DAY) * MICROS_PER_DAY, fractionalDigits);
+			return new String(buf, 0, len);
+		} else if ( value instanceof Long ) {
+			Time time = new Time((Long) value / 1000);
+			return appendFractionalSeconds(String.valueOf(time), (int) ((Long) value % 1000000) * 1000, fractionalDigits);
+		} else if ( value instanceof Timestamp ) {
+			Time time = new Time(((Timestamp) value).getTime());
+			return appendFractionalSeconds(String.valueOf(time), ((Timestamp) value).getNanos(), fractionalDigits);
+		} else {
+			return String.valueOf((Time) value);
+		}
+	}
+
+	private static String appendFractionalSeconds(String value, int nanos, Long fractionalDigits) {
+		if ( fractionalDigits == 0L )
+			return value;
+
+		char[] buf = threadLocalBuffer.get();
+		int len = value.length();
+		value.getChars(0, len, buf, 0);
+
+		// 6 is the max precision of datetime2/time6/timestamp2 in MysQL; nanos / 1000 is micros.
+		len = writeFraction(buf, len, (nanos / 1000) / POWERS_OF_TEN[6 - fractionalDigits.intValue()], fractionalDigits.intValue());
+		return new String(buf, 0, len);
+	}
+
+	/* proleptic gregorian date of day `days` after the epoch (Hinnant's civil_from_days) */
+	private static int writeDate(char[] buf, int pos, long days) {
+		long z = days + 719468;
+		long era = floorDiv(z, 146097);
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+		pos = writeDigits(buf, pos, year, 4);
+		buf[pos++] = '-';
+		pos = writeDigits(buf, pos, month, 2);
+		buf[pos++] = '-';
+		return writeDigits(buf, pos, day, 2);
+	}
+
+	private static int writeTimeOfDay(char[] buf, int pos, long microsOfDay, Long fractionalDigits) {
+		int seconds = (int) (microsOfDay / MICROS_PER_SECOND);
+
+		pos = writeDigits(buf, pos, seconds / 3600, 2);
+		buf[pos++] = ':';
+		pos = writeDigits(buf, pos, seconds / 60 % 60, 2);
+		buf[pos++] = ':';
+		pos = writeDigits(buf, pos, seconds % 60, 2);
+
+		if ( fractionalDigits == 0L )
+			return pos;
+
+		int digits = fractionalDigits.intValue();
+		int micros = (int) (microsOfDay % MICROS_PER_SECOND);
+		return writeFraction(buf, pos, micros / POWERS_OF_TEN[6 - digits], digits);
+	}
+
+	private static int writeFraction(char[] buf, int pos, int fraction, int digits) {
+		buf[pos++] = '.';
+		return writeDigits(buf, pos, fraction, digits);
+	}
+
+	/* `value`, zero-padded to at least `width` digits */
+	private static int writeDigits(char[] buf, int pos, int value, int width) {
+		int digits = 1;
+		for ( int v = value / 10; v > 0; v /= 10 )
+			digits++;
+
+		int end = pos + Math.max(width, digits);
+		for ( int i = end - 1; i >= pos; i-- ) {
+			buf[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
 
-		return extractAndFormat(formatter, value);
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ( (x % y != 0) && ((x < 0) != (y < 0)) )
+			q--;
+		return q;
 	}
 }
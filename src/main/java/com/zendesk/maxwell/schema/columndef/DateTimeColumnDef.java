@@ -1,7 +1,5 @@
 package com.zendesk.maxwell.schema.columndef;
 
-import java.sql.Timestamp;
-
 import com.google.code.or.common.util.MySQLConstants;
 
 public class DateTimeColumnDef extends ColumnDefWithLength {
@@ -21,11 +19,6 @@ public class DateTimeColumnDef extends ColumnDefWithLength {
 	}
 
 	protected String formatValue(Object value) {
-		Timestamp ts = DateFormatter.extractTimestamp(value);
-		String dateString = DateFormatter.formatDateTime(value);
-		if ( dateString == null )
-			return null;
-		else
-			return appendFractionalSeconds(dateString, ts.getNanos(), columnLength);
+		return DateFormatter.formatDateTime(value, columnLength);
 	}
 }
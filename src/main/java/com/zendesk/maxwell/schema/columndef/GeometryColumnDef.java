@@ -1,20 +1,81 @@
 package com.zendesk.maxwell.schema.columndef;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
 import com.google.code.or.common.util.MySQLConstants;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.InStream;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.zendesk.maxwell.row.RawJSONString;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.StringWriter;
 
 /**
  * Created by ben on 12/30/15.
  */
 public class GeometryColumnDef extends ColumnDef {
+	/* how geometries come out: WKT text (the default), hex of the WKB, or a GeoJSON object */
+	public enum GeometryFormat {
+		WKT, WKB_HEX, GEOJSON;
+
+		public static GeometryFormat fromString(String s) {
+			return valueOf(s.trim().toUpperCase());
+		}
+	}
+
+	// mysql sprinkles 4 mystery bytes on top of the GIS data (the SRID).
+	private static final int WKB_OFFSET = 4;
+
+	private static volatile GeometryFormat format = GeometryFormat.WKT;
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	/* the bytes of a byte[], from an offset, as a JTS InStream; reset and reused for every value. */
+	private static class OffsetInStream implements InStream {
+		private byte[] bytes;
+		private int position;
+
+		void setBytes(byte[] bytes, int offset) {
+			this.bytes = bytes;
+			this.position = offset;
+		}
+
+		@Override
+		public void read(byte[] buf) throws IOException {
+			if ( position + buf.length > bytes.length )
+				throw new IOException("truncated WKB geometry");
+			System.arraycopy(bytes, position, buf, 0, buf.length);
+			position += buf.length;
+		}
+	}
+
+	// WKBReaders aren't thread safe, but can be reused.
+	private static final ThreadLocal<WKBReader> threadLocalReader = new ThreadLocal<WKBReader>() {
+		@Override
+		protected WKBReader initialValue() {
+			return new WKBReader();
+		}
+	};
+
+	private static final ThreadLocal<OffsetInStream> threadLocalInStream = new ThreadLocal<OffsetInStream>() {
+		@Override
+		protected OffsetInStream initialValue() {
+			return new OffsetInStream();
+		}
+	};
+
 	public GeometryColumnDef(String name, String type, int pos) {
 		super(name, type, pos);
 	}
 
+	public static void configureOutput(GeometryFormat format) {
+		GeometryColumnDef.format = format;
+	}
+
 	@Override
 	public boolean matchesMysqlType(int type) {
 		return type == MySQLConstants.TYPE_GEOMETRY;
@@ -22,27 +83,80 @@ public class GeometryColumnDef extends ColumnDef {
 
 	@Override
 	public Object asJSON(Object value) {
-		Geometry geometry = null;
+		GeometryFormat f = format;
+		if ( f == GeometryFormat.WKT )
+			return toGeometry(value).toText();
+
+		byte[] wkb;
+		int offset;
+		if ( value instanceof byte[] ) {
+			wkb = (byte[]) value;
+			offset = WKB_OFFSET;
+		} else {
+			wkb = toWKB(toGeometry(value));
+			offset = 0;
+		}
+
+		if ( f == GeometryFormat.WKB_HEX )
+			return StringColumnDef.toHex(wkb, offset, wkb.length - offset);
+
+		try {
+			StringWriter json = new StringWriter();
+			JsonGenerator g = jsonFactory.createGenerator(json);
+			writeGeoJSON(g, wkb, offset);
+			g.close();
+			return new RawJSONString(json.toString());
+		} catch ( IOException e ) {
+			throw new RuntimeException(e); // a StringWriter doesn't throw
+		}
+	}
+
+	/* the WKB and GeoJSON formats go straight from the binlog's bytes to the output */
+	@Override
+	public boolean writeJSON(JsonGenerator g, SerializableString fieldName, Object value) throws IOException {
+		GeometryFormat f = format;
+		if ( f == GeometryFormat.WKT || !(value instanceof byte[]) )
+			return false;
+
+		byte[] wkb = (byte[]) value;
+		g.writeFieldName(fieldName);
+		if ( f == GeometryFormat.WKB_HEX )
+			StringColumnDef.writeHex(g, wkb, WKB_OFFSET, wkb.length - WKB_OFFSET);
+		else
+			writeGeoJSON(g, wkb, WKB_OFFSET);
+		return true;
+	}
+
+	private static void writeGeoJSON(JsonGenerator g, byte[] wkb, int offset) throws IOException {
+		try {
+			WKBGeoJSONWriter.write(g, wkb, offset);
+		} catch ( ParseException e ) {
+			throw new RuntimeException("Could not parse geometry: " + e);
+		}
+	}
+
+	private static Geometry toGeometry(Object value) {
 		if ( value instanceof Geometry ) {
-			geometry = (Geometry) value;
+			return (Geometry) value;
 		} else if ( value instanceof byte[] ) {
-			byte []bytes = (byte[]) value;
-
-			// mysql sprinkles 4 mystery bytes on top of the GIS data.
-			bytes = Arrays.copyOfRange(bytes, 4, bytes.length);
-			final WKBReader reader = new WKBReader();
+			OffsetInStream in = threadLocalInStream.get();
+			in.setBytes((byte[]) value, WKB_OFFSET);
 
 			try {
-				geometry = reader.read(bytes);
-			} catch ( ParseException e ) {
+				return threadLocalReader.get().read(in);
+			} catch ( ParseException | IOException e ) {
 				throw new RuntimeException("Could not parse geometry: " + e);
+			} finally {
+				in.setBytes(null, 0);
 			}
-
 		} else {
 			throw new RuntimeException("Could not parse geometry column value: " + value);
 		}
+	}
 
-		return geometry.toText();
+	// mysql's byte order, so WKB_HEX looks the same whichever way the value arrived.
+	private static byte[] toWKB(Geometry geometry) {
+		return new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN).write(geometry);
 	}
 
 	@Override
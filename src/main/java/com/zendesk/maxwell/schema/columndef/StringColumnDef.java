@@ -1,11 +1,16 @@
 package com.zendesk.maxwell.schema.columndef;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.Hex;
 
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
 import com.google.code.or.common.util.MySQLConstants;
 
 import org.slf4j.Logger;
@@ -13,24 +18,58 @@ import org.slf4j.LoggerFactory;
 
 public class StringColumnDef extends ColumnDef {
 	public String charset;
+	private transient volatile Charset javaCharset; // `charset`, resolved on first use
 
 	static final Logger LOGGER = LoggerFactory.getLogger(StringColumnDef.class);
+
+	public enum BinaryEncoding {
+		BASE64, HEX;
+
+		public static BinaryEncoding fromString(String s) {
+			return valueOf(s.trim().toUpperCase());
+		}
+	}
+
+	private static volatile BinaryEncoding binaryEncoding = BinaryEncoding.BASE64;
+	private static volatile long binaryMaxBytes = 0; // 0: no limit
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int MAX_CACHED_HEX_BUFFER = 64 * 1024;
+	private static final ThreadLocal<char[]> hexBuffer = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[256];
+		}
+	};
+
 	public StringColumnDef(String name, String type, int pos, String charset) {
 		super(name, type, pos);
 		this.charset = charset;
 	}
 
+	/*
+	   how binary columns come out: base64 (the default) or lowercase hex.  Values
+	   longer than `maxBytes` (when it's more than 0) come out as null instead.
+	 */
+	public static void configureBinaryOutput(BinaryEncoding encoding, long maxBytes) {
+		StringColumnDef.binaryEncoding = encoding;
+		StringColumnDef.binaryMaxBytes = maxBytes;
+	}
+
 	public String getCharset() {
 		return charset;
 	}
 
 	public void setCharset(String charset) {
 		this.charset = charset;
+		this.javaCharset = null;
 	}
 
 	public void setDefaultCharset(String e) {
-		if ( this.charset == null )
+		if ( this.charset == null ) {
 		  this.charset = e;
+		  this.javaCharset = null;
+		}
 	}
 
 	@Override
@@ -68,6 +107,16 @@ public class StringColumnDef extends ColumnDef {
 			}
 		}
 	}
+
+	private Charset getJavaCharset() {
+		Charset c = javaCharset;
+		if ( c == null ) {
+			c = charsetForCharset();
+			javaCharset = c;
+		}
+		return c;
+	}
+
 	@Override
 	public Object asJSON(Object value) {
 
@@ -77,10 +126,133 @@ public class StringColumnDef extends ColumnDef {
 
 		byte[] b = (byte[])value;
 		if ( charset.equals("binary") ) {
-			return Base64.encodeBase64String(b);
+			return encodeBinary(b);
 		} else {
-			return new String(b, charsetForCharset());
+			return new String(b, getJavaCharset());
+		}
+	}
+
+	private static boolean isTooLarge(byte[] b) {
+		long max = binaryMaxBytes;
+		return max > 0 && b.length > max;
+	}
+
+	private static String encodeBinary(byte[] b) {
+		if ( isTooLarge(b) )
+			return null;
+
+		if ( binaryEncoding == BinaryEncoding.HEX )
+			return toHex(b, 0, b.length);
+		else
+			return Base64Variants.MIME_NO_LINEFEEDS.encode(b); // what commons-codec's encodeBase64String gave us
+	}
+
+	/*
+	   binary columns are base64'd (or hex'd) by jackson straight into its output
+	   buffer.
+
+	   utf8 columns hand jackson the bytes straight from the binlog; it only has
+	   to escape them.  Jackson escapes characters outside the BMP when writing
+	   a String, and java decodes malformed bytes to U+FFFD, so values with either
+	   take the String route to come out the same.
+	 */
+	@Override
+	public boolean writeJSON(JsonGenerator g, SerializableString fieldName, Object value) throws IOException {
+		if ( !(value instanceof byte[]) )
+			return false;
+
+		byte[] b = (byte[]) value;
+		if ( charset.equals("binary") )
+			return writeBinary(g, fieldName, b);
+
+		if ( !(g instanceof UTF8JsonGenerator) || !StandardCharsets.UTF_8.equals(getJavaCharset()) )
+			return false;
+
+		if ( !isThreeByteUTF8(b) )
+			return false;
+
+		g.writeFieldName(fieldName);
+		g.writeUTF8String(b, 0, b.length);
+		return true;
+	}
+
+	private static boolean writeBinary(JsonGenerator g, SerializableString fieldName, byte[] b) throws IOException {
+		if ( isTooLarge(b) )
+			return false; // it's a null.
+
+		g.writeFieldName(fieldName);
+		if ( binaryEncoding == BinaryEncoding.HEX )
+			writeHex(g, b, 0, b.length);
+		else
+			g.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, b, 0, b.length);
+		return true;
+	}
+
+	/* `length` bytes of `b` from `offset` as a lowercase hex string value; like Hex.encodeHex, without the copies */
+	static void writeHex(JsonGenerator g, byte[] b, int offset, int length) throws IOException {
+		char[] buf = hexChars(b, offset, length, true);
+		g.writeRawValue(buf, 0, length * 2 + 2); // hex never needs escaping, so the quoted value can go out as-is.
+	}
+
+	static String toHex(byte[] b, int offset, int length) {
+		return new String(hexChars(b, offset, length, false), 0, length * 2);
+	}
+
+	private static char[] hexChars(byte[] b, int offset, int length, boolean quoted) {
+		int needed = length * 2 + 2;
+		char[] buf = hexBuffer.get();
+		if ( buf.length < needed ) {
+			buf = new char[needed];
+			if ( needed <= MAX_CACHED_HEX_BUFFER )
+				hexBuffer.set(buf);
+		}
+
+		int pos = 0;
+		if ( quoted )
+			buf[pos++] = '"';
+		for ( int i = offset; i < offset + length; i++ ) {
+			buf[pos++] = HEX_DIGITS[(b[i] >> 4) & 0xF];
+			buf[pos++] = HEX_DIGITS[b[i] & 0xF];
+		}
+		if ( quoted )
+			buf[pos++] = '"';
+		return buf;
+	}
+
+	/* well-formed UTF-8 using at most 3-byte sequences, ie. no surrogates and nothing outside the BMP */
+	static boolean isThreeByteUTF8(byte[] b) {
+		int i = 0, length = b.length;
+		while ( i < length ) {
+			int b0 = b[i];
+			if ( b0 >= 0 ) {
+				i++;
+				continue;
+			}
+
+			b0 &= 0xFF;
+			if ( b0 >= 0xC2 && b0 <= 0xDF ) {
+				if ( i + 1 >= length || !isContinuation(b[i + 1]) )
+					return false;
+				i += 2;
+			} else if ( b0 >= 0xE0 && b0 <= 0xEF ) {
+				if ( i + 2 >= length || !isContinuation(b[i + 1]) || !isContinuation(b[i + 2]) )
+					return false;
+
+				int b1 = b[i + 1] & 0xFF;
+				if ( b0 == 0xE0 && b1 < 0xA0 ) // overlong
+					return false;
+				if ( b0 == 0xED && b1 >= 0xA0 ) // surrogate
+					return false;
+				i += 3;
+			} else {
+				return false;
+			}
 		}
+		return true;
+	}
+
+	private static boolean isContinuation(byte b) {
+		return (b & 0xC0) == 0x80;
 	}
 
 	private String quoteString(String s) {
@@ -0,0 +1,160 @@
+package com.zendesk.maxwell.schema.columndef;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.vividsolutions.jts.io.ParseException;
+
+import java.io.IOException;
+
+/*
+   writes 2D WKB (what mysql stores, after its SRID prefix) to a JsonGenerator
+   as GeoJSON, reading coordinates straight out of the bytes rather than
+   building a JTS geometry first.
+ */
+class WKBGeoJSONWriter {
+	private static final int POINT = 1;
+	private static final int LINE_STRING = 2;
+	private static final int POLYGON = 3;
+	private static final int MULTI_POINT = 4;
+	private static final int MULTI_LINE_STRING = 5;
+	private static final int MULTI_POLYGON = 6;
+	private static final int GEOMETRY_COLLECTION = 7;
+
+	private static final SerializableString TYPE_FIELD = new SerializedString("type");
+	private static final SerializableString COORDINATES_FIELD = new SerializedString("coordinates");
+	private static final SerializableString GEOMETRIES_FIELD = new SerializedString("geometries");
+	private static final SerializableString[] TYPE_NAMES = {
+		null,
+		new SerializedString("Point"),
+		new SerializedString("LineString"),
+		new SerializedString("Polygon"),
+		new SerializedString("MultiPoint"),
+		new SerializedString("MultiLineString"),
+		new SerializedString("MultiPolygon"),
+		new SerializedString("GeometryCollection")
+	};
+
+	private final JsonGenerator g;
+	private final byte[] wkb;
+	private int pos;
+	private boolean littleEndian;
+
+	private WKBGeoJSONWriter(JsonGenerator g, byte[] wkb, int offset) {
+		this.g = g;
+		this.wkb = wkb;
+		this.pos = offset;
+	}
+
+	/* write the geometry starting at `wkb[offset]` */
+	static void write(JsonGenerator g, byte[] wkb, int offset) throws IOException, ParseException {
+		new WKBGeoJSONWriter(g, wkb, offset).writeGeometry();
+	}
+
+	private void writeGeometry() throws IOException, ParseException {
+		int type = readHeader();
+
+		g.writeStartObject();
+		g.writeFieldName(TYPE_FIELD);
+		g.writeString(TYPE_NAMES[type]);
+
+		if ( type == GEOMETRY_COLLECTION ) {
+			g.writeFieldName(GEOMETRIES_FIELD);
+			g.writeStartArray();
+			for ( int n = readCount(); n > 0; n-- )
+				writeGeometry();
+			g.writeEndArray();
+		} else {
+			g.writeFieldName(COORDINATES_FIELD);
+			writeCoordinates(type);
+		}
+
+		g.writeEndObject();
+	}
+
+	private void writeCoordinates(int type) throws IOException, ParseException {
+		switch ( type ) {
+			case POINT:
+				writePoint();
+				break;
+			case LINE_STRING:
+				writePoints(readCount());
+				break;
+			case POLYGON:
+				g.writeStartArray();
+				for ( int rings = readCount(); rings > 0; rings-- )
+					writePoints(readCount());
+				g.writeEndArray();
+				break;
+			case MULTI_POINT:
+			case MULTI_LINE_STRING:
+			case MULTI_POLYGON:
+				// each member is a whole WKB geometry, header and all.
+				int n = readCount();
+				g.writeStartArray();
+				for ( ; n > 0; n-- ) {
+					boolean outerEndian = littleEndian;
+					writeCoordinates(readHeader());
+					littleEndian = outerEndian;
+				}
+				g.writeEndArray();
+				break;
+		}
+	}
+
+	private void writePoints(int n) throws IOException, ParseException {
+		g.writeStartArray();
+		for ( ; n > 0; n-- )
+			writePoint();
+		g.writeEndArray();
+	}
+
+	private void writePoint() throws IOException, ParseException {
+		g.writeStartArray();
+		g.writeNumber(readDouble());
+		g.writeNumber(readDouble());
+		g.writeEndArray();
+	}
+
+	private int readHeader() throws ParseException {
+		need(5);
+		littleEndian = wkb[pos++] == 1;
+		int type = readInt();
+		if ( type < POINT || type > GEOMETRY_COLLECTION )
+			throw new ParseException("unsupported WKB geometry type: " + type);
+		return type;
+	}
+
+	private int readCount() throws ParseException {
+		need(4);
+		return readInt();
+	}
+
+	private int readInt() {
+		int b0 = wkb[pos] & 0xFF, b1 = wkb[pos + 1] & 0xFF, b2 = wkb[pos + 2] & 0xFF, b3 = wkb[pos + 3] & 0xFF;
+		pos += 4;
+		if ( littleEndian )
+			return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+		else
+			return (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+	}
+
+	private double readDouble() throws ParseException {
+		need(8);
+		long l = 0;
+		if ( littleEndian ) {
+			for ( int i = 7; i >= 0; i-- )
+				l = (l << 8) | (wkb[pos + i] & 0xFF);
+		} else {
+			for ( int i = 0; i < 8; i++ )
+				l = (l << 8) | (wkb[pos + i] & 0xFF);
+		}
+		pos += 8;
+		return Double.longBitsToDouble(l);
+	}
+
+	private void need(int n) throws ParseException {
+		if ( pos + n > wkb.length )
+			throw new ParseException("truncated WKB geometry");
+	}
+}
@@ -6,11 +6,12 @@ import com.zendesk.maxwell.producer.MaxwellOutputConfig;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
 import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.util.UniqueId;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Map;
-import java.util.UUID;
 
 public class DDLMap extends RowMap {
 	private final ResolvedSchemaChange change;
@@ -27,7 +28,12 @@ public class DDLMap extends RowMap {
 	}
 
 	public String pkToJson(KeyFormat keyFormat) throws IOException {
-		return UUID.randomUUID().toString();
+		return UniqueId.next();
+	}
+
+	@Override
+	public KeyAndValue toKeyAndValueBytes(KeyFormat keyFormat, MaxwellOutputConfig outputConfig) throws IOException {
+		return new KeyAndValue(pkToJson(keyFormat).getBytes(StandardCharsets.UTF_8), toJSONBytes(outputConfig));
 	}
 
 	public boolean isTXCommit() {
@@ -45,7 +51,19 @@ public class DDLMap extends RowMap {
 		return null;
 
 		ObjectMapper mapper = new ObjectMapper();
+		return mapper.writeValueAsString(buildChangeMixin(mapper, outputConfig));
+	}
+
+	@Override
+	public byte[] toJSONBytes(MaxwellOutputConfig outputConfig) throws IOException {
+		if ( !outputConfig.outputDDL )
+			return null;
+
+		ObjectMapper mapper = new ObjectMapper();
+		return mapper.writeValueAsBytes(buildChangeMixin(mapper, outputConfig));
+	}
 
+	private Map<String, Object> buildChangeMixin(ObjectMapper mapper, MaxwellOutputConfig outputConfig) {
 		Map<String, Object> changeMixin = mapper.convertValue(change, new TypeReference<Map<String, Object>>() { });
 		changeMixin.put("ts", timestamp);
 		changeMixin.put("sql", sql);
@@ -56,7 +74,7 @@ public class DDLMap extends RowMap {
 		if ( outputConfig.includesGtidPosition) {
 			changeMixin.put("gtid", binlogPosition.getGtid());
 		}
-		return mapper.writeValueAsString(changeMixin);
+		return changeMixin;
 	}
 
 	@Override
@@ -9,18 +9,34 @@ import java.util.*;
 /*
    a wrapper class for a linked list that will keep N tail elements
    in memory, spilling its head onto disk as needed.
+
+   Elements are spilled through a Codec as length-prefixed records
+   (see SpillOutput) into a SegmentedSpillStore.  Once everything spilled
+   has been read back the store is closed, deleting its segment files and
+   giving back its share of the spill quota.  Owners that drop a buffer
+   before reading it out must close() it for the same reason.
  */
-public class ListWithDiskBuffer<T> {
+public class ListWithDiskBuffer<T> implements Closeable {
+	/* turns elements into spill records and back.  Records are read back in the order they were written. */
+	public interface Codec<T> {
+		void write(T element, SpillOutput out) throws IOException;
+		T read(SpillInput in) throws IOException;
+	}
+
 	static final Logger LOGGER = LoggerFactory.getLogger(ListWithDiskBuffer.class);
+	private static final int IO_BUFFER_SIZE = 64 * 1024;
+
 	private final long maxInMemoryElements;
+	private final Codec<T> codec;
 	private final LinkedList<T> list;
 	private long elementsInFile = 0;
-	private File file;
-	private ObjectInputStream is;
-	private ObjectOutputStream os;
+	private SegmentedSpillStore store;
+	private SpillOutput output;
+	private SpillInput input;
 
-	public ListWithDiskBuffer(long maxInMemoryElements) {
+	public ListWithDiskBuffer(long maxInMemoryElements, Codec<T> codec) {
 		this.maxInMemoryElements = maxInMemoryElements;
+		this.codec = codec;
 		list = new LinkedList<>();
 	}
 
@@ -35,13 +51,9 @@ public class ListWithDiskBuffer<T> {
 		return this.list.size() > maxInMemoryElements;
 	}
 
-	protected void resetOutputStreamCaches() throws IOException {
-		os.reset();
-	}
-
 	public void flushToDisk() throws IOException {
-		if ( os != null )
-			os.flush();
+		if ( output != null )
+			output.flush();
 	}
 
 	public boolean isEmpty() {
@@ -52,16 +64,17 @@ public class ListWithDiskBuffer<T> {
 		return list.getLast();
 	}
 
-	public T removeFirst(Class<T> clazz) throws IOException, ClassNotFoundException {
+	public T removeFirst() throws IOException {
 		if ( elementsInFile > 0 ) {
-			if ( is == null ) {
-				os.flush();
-				is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
-			}
+			// records written since the last read may still be sitting in the output buffer.
+			flushToDisk();
+
+			input.beginRecord();
+			T element = codec.read(input);
+			input.endRecord();
 
-			Object object = is.readObject();
-			T element = clazz.cast(object);
-			elementsInFile--;
+			if ( --elementsInFile == 0 )
+				closeStore();
 
 			return element;
 		} else {
@@ -77,33 +90,38 @@ public class ListWithDiskBuffer<T> {
 		return Long.valueOf(list.size());
 	}
 
+	/* throw away everything left in the buffer, in memory or on disk. */
 	@Override
-	protected void finalize() throws Throwable {
-		try {
-			file.delete();
-		} finally {
-			super.finalize();
-		}
+	public void close() {
+		list.clear();
+		elementsInFile = 0;
+
+		if ( store != null )
+			closeStore();
+	}
+
+	private void closeStore() {
+		store.close();
+		store = null;
+		output = null;
+		input = null;
 	}
 
 	protected T evict() throws IOException {
-		if ( file == null ) {
-			file = File.createTempFile("maxwell", "events");
-			file.deleteOnExit();
-			os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		if ( store == null ) {
+			LOGGER.info("Overflowed in-memory buffer, spilling over into " + SegmentedSpillStore.getDirectory());
+			store = new SegmentedSpillStore();
+			output = new SpillOutput(store, IO_BUFFER_SIZE);
+			input = new SpillInput(store, IO_BUFFER_SIZE);
 		}
 
-		if ( elementsInFile == 0 )
-			LOGGER.info("Overflowed in-memory buffer, spilling over into " + file);
-
 		T evicted = this.list.removeFirst();
-		os.writeObject(evicted);
+		output.beginRecord();
+		codec.write(evicted, output);
+		output.endRecord();
 
 		elementsInFile++;
 
-		if ( elementsInFile % maxInMemoryElements == 0 )
-			resetOutputStreamCaches();
-
 		return evicted;
 	}
 
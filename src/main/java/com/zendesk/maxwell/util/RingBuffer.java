@@ -0,0 +1,163 @@
+package com.zendesk.maxwell.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+   a bounded, preallocated single-producer/single-consumer queue.
+
+   exactly one thread may call `offer`, and exactly one (other) thread may call
+   `drainTo`.  Neither side takes a lock or allocates; when the buffer is
+   full (or empty) the waiting side spins, yields or parks according to the
+   configured WaitStrategy.
+
+   A parked side stays parked until the other side moves its counter and
+   unparks it (or the timeout runs out), so an idle replicator sleeps instead
+   of polling.  Announcing the park and publishing a counter are both full
+   volatile writes followed by a read of the other, so one of the two sides
+   always sees the other and no wakeup is lost.
+ */
+public class RingBuffer<T> {
+	public enum WaitStrategy {
+		SPIN, YIELD, PARK;
+
+		public static WaitStrategy fromString(String s) {
+			return valueOf(s.trim().toUpperCase());
+		}
+	}
+
+	private final Object[] entries;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+
+	// next slot to be read, written only by the consumer
+	private final AtomicLong head = new AtomicLong(0);
+	// next slot to be written, written only by the producer
+	private final AtomicLong tail = new AtomicLong(0);
+
+	// each side's last look at the other side's counter, to avoid re-reading the shared volatile
+	private long cachedHead = 0;
+	private long cachedTail = 0;
+
+	// with PARK, whichever side is parked waiting for the other, if any.
+	private volatile Thread parkedProducer;
+	private volatile Thread parkedConsumer;
+
+	public RingBuffer(int minCapacity, WaitStrategy waitStrategy) {
+		int capacity = 1;
+		while ( capacity < minCapacity )
+			capacity <<= 1;
+
+		this.entries = new Object[capacity];
+		this.mask = capacity - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	public int capacity() {
+		return entries.length;
+	}
+
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/* producer side.  returns false if no slot became free before the timeout. */
+	public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+		long t = tail.get();
+		long wrapPoint = t - entries.length;
+
+		if ( cachedHead <= wrapPoint ) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while ( (cachedHead = head.get()) <= wrapPoint ) {
+				long left = deadline - System.nanoTime();
+				if ( left <= 0 )
+					return false;
+				idle(head, wrapPoint, left, true);
+			}
+		}
+
+		entries[(int) t & mask] = element;
+		if ( waitStrategy == WaitStrategy.PARK ) {
+			tail.set(t + 1);
+			Thread consumer = parkedConsumer;
+			if ( consumer != null )
+				LockSupport.unpark(consumer);
+		} else {
+			tail.lazySet(t + 1);
+		}
+		return true;
+	}
+
+	/*
+	   consumer side.  waits up to `timeout` for at least one element, then moves
+	   every available element (up to maxElements) into `target`.
+	   returns the number of elements drained.
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(Collection<? super T> target, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		long h = head.get();
+
+		if ( cachedTail <= h ) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while ( (cachedTail = tail.get()) <= h ) {
+				long left = deadline - System.nanoTime();
+				if ( left <= 0 )
+					return 0;
+				idle(tail, h, left, false);
+			}
+		}
+
+		int count = (int) Math.min(cachedTail - h, maxElements);
+		for ( int i = 0; i < count; i++ ) {
+			int index = (int) (h + i) & mask;
+			target.add((T) entries[index]);
+			entries[index] = null;
+		}
+
+		if ( waitStrategy == WaitStrategy.PARK ) {
+			head.set(h + count);
+			Thread producer = parkedProducer;
+			if ( producer != null )
+				LockSupport.unpark(producer);
+		} else {
+			head.lazySet(h + count);
+		}
+		return count;
+	}
+
+	/* wait a little (or, parking, up to `nanos`) for the other side to move `counter` past `value`. */
+	private void idle(AtomicLong counter, long value, long nanos, boolean isProducer) throws InterruptedException {
+		switch ( waitStrategy ) {
+			case SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			case PARK:
+				Thread self = Thread.currentThread();
+				if ( isProducer )
+					parkedProducer = self;
+				else
+					parkedConsumer = self;
+
+				// look again now that we can be woken: the other side may have moved in between.
+				if ( counter.get() <= value )
+					LockSupport.parkNanos(this, nanos);
+
+				if ( isProducer )
+					parkedProducer = null;
+				else
+					parkedConsumer = null;
+				break;
+		}
+
+		if ( Thread.interrupted() )
+			throw new InterruptedException();
+	}
+}
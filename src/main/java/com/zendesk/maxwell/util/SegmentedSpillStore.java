@@ -0,0 +1,229 @@
+package com.zendesk.maxwell.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+   a FIFO of bytes kept in fixed-size, memory-mapped segment files.
+
+   Writes go to the last segment, reads come from the first.  Once a segment
+   has been read through it is kept around for the next write instead of
+   mapping a new file (one spare at most; extras are released).
+
+   Segment files are unlinked as soon as they're mapped, so a crash can't leave
+   them behind.  Where the OS won't allow that (windows) they're deleted when
+   released instead, and close() releases every segment.
+
+   All stores share one directory and one quota (see configure()); going over
+   the quota is an IOException, not a full disk.  Released segments are
+   unmapped right away rather than whenever their buffer gets garbage
+   collected, which is what gives the disk space back.
+ */
+public class SegmentedSpillStore implements Closeable {
+	static final Logger LOGGER = LoggerFactory.getLogger(SegmentedSpillStore.class);
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private static volatile File directory = null; // null: java.io.tmpdir
+	private static volatile long quota = 0; // 0: unlimited
+	private static final AtomicLong bytesInUse = new AtomicLong(0);
+	private static volatile boolean warnedUnmap = false;
+
+	private static class Segment {
+		final File file; // null once unlinked
+		final MappedByteBuffer writer;
+		final ByteBuffer reader;
+
+		Segment(File file, MappedByteBuffer writer) {
+			this.file = file;
+			this.writer = writer;
+			this.reader = writer.duplicate();
+		}
+
+		int unread() {
+			return writer.position() - reader.position();
+		}
+	}
+
+	private final int segmentSize;
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private Segment spare;
+
+	public SegmentedSpillStore() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	public SegmentedSpillStore(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public static void configure(File directory, long quota) {
+		SegmentedSpillStore.directory = directory;
+		SegmentedSpillStore.quota = quota;
+	}
+
+	public static File getDirectory() {
+		File dir = directory;
+		return dir == null ? new File(System.getProperty("java.io.tmpdir")) : dir;
+	}
+
+	/* bytes of segments currently mapped, across all stores */
+	public static long getBytesInUse() {
+		return bytesInUse.get();
+	}
+
+	/* append all of `src`. */
+	public void write(ByteBuffer src) throws IOException {
+		while ( src.hasRemaining() ) {
+			Segment tail = segments.peekLast();
+			if ( tail == null || !tail.writer.hasRemaining() ) {
+				tail = newSegment();
+				segments.addLast(tail);
+			}
+
+			int n = Math.min(src.remaining(), tail.writer.remaining());
+			ByteBuffer chunk = src.duplicate();
+			chunk.limit(chunk.position() + n);
+			tail.writer.put(chunk);
+			src.position(src.position() + n);
+		}
+	}
+
+	/* move as many unread bytes as fit into `dst`; returns how many that was. */
+	public int read(ByteBuffer dst) throws IOException {
+		int read = 0;
+
+		while ( dst.hasRemaining() ) {
+			Segment head = segments.peekFirst();
+			if ( head == null )
+				break;
+
+			int unread = head.unread();
+			if ( unread == 0 ) {
+				if ( head.writer.hasRemaining() )
+					break; // caught up with the writer.
+
+				recycle(segments.pollFirst());
+				continue;
+			}
+
+			int n = Math.min(unread, dst.remaining());
+			ByteBuffer chunk = head.reader.duplicate();
+			chunk.limit(chunk.position() + n);
+			dst.put(chunk);
+			head.reader.position(head.reader.position() + n);
+			read += n;
+		}
+
+		return read;
+	}
+
+	private Segment newSegment() throws IOException {
+		if ( spare != null ) {
+			Segment s = spare;
+			spare = null;
+			return s;
+		}
+
+		long used = bytesInUse.addAndGet(segmentSize);
+		long max = quota;
+		if ( max > 0 && used > max ) {
+			bytesInUse.addAndGet(-segmentSize);
+			throw new IOException("spill quota of " + max + " bytes exhausted; see --spill_quota");
+		}
+
+		File file = null;
+		try {
+			file = File.createTempFile("maxwell", ".spill", getDirectory());
+			try ( RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			      FileChannel channel = raf.getChannel() ) {
+				// the mapping outlives the channel and the directory entry.
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+				return new Segment(file.delete() ? null : file, buffer);
+			}
+		} catch ( IOException e ) {
+			bytesInUse.addAndGet(-segmentSize);
+			if ( file != null )
+				file.delete();
+			throw e;
+		}
+	}
+
+	private void recycle(Segment s) {
+		if ( spare == null ) {
+			s.writer.clear();
+			s.reader.clear();
+			spare = s;
+		} else {
+			release(s);
+		}
+	}
+
+	private void release(Segment s) {
+		if ( s.file != null && !s.file.delete() )
+			LOGGER.warn("couldn't delete spill segment " + s.file);
+
+		if ( !unmap(s.writer) && !warnedUnmap ) {
+			warnedUnmap = true;
+			LOGGER.warn("couldn't unmap spill segments, their space comes back when they're garbage collected.");
+		}
+		bytesInUse.addAndGet(-segmentSize);
+	}
+
+	/*
+	   there's no public API for this.  java 9+ has Unsafe#invokeCleaner, java 7/8
+	   a cleaner() on the buffer itself.  The buffer (and all its duplicates) must
+	   never be touched again.
+	 */
+	static boolean unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return true;
+		} catch ( NoSuchMethodException e ) {
+			// java 7/8, below.
+		} catch ( Exception e ) {
+			LOGGER.debug("couldn't unmap spill segment", e);
+			return false;
+		}
+
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if ( cleaner == null )
+				return false;
+			cleaner.getClass().getMethod("clean").invoke(cleaner);
+			return true;
+		} catch ( Exception e ) {
+			LOGGER.debug("couldn't unmap spill segment", e);
+			return false;
+		}
+	}
+
+	@Override
+	public void close() {
+		Segment s;
+		while ( (s = segments.pollFirst()) != null )
+			release(s);
+
+		if ( spare != null ) {
+			release(spare);
+			spare = null;
+		}
+	}
+}
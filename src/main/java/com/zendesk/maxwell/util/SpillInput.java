@@ -0,0 +1,137 @@
+package com.zendesk.maxwell.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/*
+   the reading half of ListWithDiskBuffer's spill format; see SpillOutput.
+ */
+public class SpillInput {
+	private final SegmentedSpillStore store;
+	private final int bufferSize;
+	private ByteBuffer buffer;
+	private int recordEnd;
+	private char[] chars = new char[256];
+	private final ArrayList<String> names = new ArrayList<>();
+
+	public SpillInput(SegmentedSpillStore store, int bufferSize) {
+		this.store = store;
+		this.bufferSize = bufferSize;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffer.flip();
+	}
+
+	/* make sure the next record is entirely in the buffer; the writer must have flushed it. */
+	void beginRecord() throws IOException {
+		fill(4);
+		int length = buffer.getInt(buffer.position());
+		fill(4 + length);
+
+		buffer.position(buffer.position() + 4);
+		recordEnd = buffer.position() + length;
+	}
+
+	void endRecord() {
+		buffer.position(recordEnd);
+	}
+
+	private void fill(int n) throws IOException {
+		if ( buffer.remaining() >= n )
+			return;
+
+		if ( buffer.capacity() < n ) {
+			ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(n, bufferSize));
+			grown.put(buffer);
+			buffer = grown;
+		} else if ( buffer.capacity() > bufferSize * 4 && buffer.remaining() < bufferSize ) {
+			ByteBuffer shrunk = ByteBuffer.allocateDirect(Math.max(n, bufferSize));
+			shrunk.put(buffer);
+			buffer = shrunk;
+		} else {
+			buffer.compact();
+		}
+
+		while ( buffer.position() < n ) {
+			if ( store.read(buffer) == 0 )
+				throw new EOFException("spill store ended in the middle of a record");
+		}
+		buffer.flip();
+	}
+
+	public int getByte() {
+		return buffer.get();
+	}
+
+	public boolean getBoolean() {
+		return buffer.get() != 0;
+	}
+
+	public long getLong() {
+		return buffer.getLong();
+	}
+
+	public double getDouble() {
+		return buffer.getDouble();
+	}
+
+	public float getFloat() {
+		return buffer.getFloat();
+	}
+
+	public long getVarLong() {
+		long l = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			l |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ( (b & 0x80) != 0 );
+		return l;
+	}
+
+	public byte[] getBytes() {
+		byte[] bytes = new byte[(int) getVarLong()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	public String getString() {
+		int encodedLength = (int) getVarLong() - 1;
+		if ( encodedLength < 0 )
+			return null;
+
+		if ( chars.length < encodedLength )
+			chars = new char[Math.max(encodedLength, chars.length * 2)];
+
+		int end = buffer.position() + encodedLength, length = 0;
+		while ( buffer.position() < end ) {
+			int b = buffer.get() & 0xFF;
+			if ( b < 0x80 ) {
+				chars[length++] = (char) b;
+			} else if ( b < 0xE0 ) {
+				chars[length++] = (char) (((b & 0x1F) << 6) | (buffer.get() & 0x3F));
+			} else {
+				int b2 = buffer.get() & 0x3F, b3 = buffer.get() & 0x3F;
+				chars[length++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+			}
+		}
+		return new String(chars, 0, length);
+	}
+
+	public String getName() {
+		long id = getVarLong();
+		if ( id == 0 )
+			return null;
+
+		if ( id == 1 ) {
+			String name = getString();
+			names.add(name);
+			return name;
+		}
+
+		return names.get((int) (id - 2));
+	}
+}
@@ -0,0 +1,153 @@
+package com.zendesk.maxwell.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/*
+   the writing half of ListWithDiskBuffer's spill format.
+
+   Records are an int length followed by whatever the codec puts in them,
+   accumulated in a direct buffer and handed to the SegmentedSpillStore once
+   it passes `bufferSize`.  Names (see putName) are written out in full the first
+   time they show up in a store and as a small integer after that.
+ */
+public class SpillOutput {
+	private final SegmentedSpillStore store;
+	private final int bufferSize;
+	private ByteBuffer buffer;
+	private int recordStart = -1;
+	private final HashMap<String, Integer> names = new HashMap<>();
+
+	public SpillOutput(SegmentedSpillStore store, int bufferSize) {
+		this.store = store;
+		this.bufferSize = bufferSize;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	void beginRecord() {
+		recordStart = buffer.position();
+		ensure(4);
+		buffer.putInt(0);
+	}
+
+	void endRecord() throws IOException {
+		buffer.putInt(recordStart, buffer.position() - recordStart - 4);
+		recordStart = -1;
+
+		if ( buffer.position() >= bufferSize )
+			flush();
+	}
+
+	/* write out any complete records still sitting in the buffer. */
+	void flush() throws IOException {
+		buffer.flip();
+		store.write(buffer);
+
+		if ( buffer.capacity() > bufferSize * 4 )
+			buffer = ByteBuffer.allocateDirect(bufferSize); // don't hang on to the buffer a huge record needed
+		else
+			buffer.clear();
+	}
+
+	private void ensure(int n) {
+		if ( buffer.remaining() >= n )
+			return;
+
+		ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + n));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+
+	public void putByte(int b) {
+		ensure(1);
+		buffer.put((byte) b);
+	}
+
+	public void putBoolean(boolean b) {
+		putByte(b ? 1 : 0);
+	}
+
+	public void putLong(long l) {
+		ensure(8);
+		buffer.putLong(l);
+	}
+
+	public void putDouble(double d) {
+		ensure(8);
+		buffer.putDouble(d);
+	}
+
+	public void putFloat(float f) {
+		ensure(4);
+		buffer.putFloat(f);
+	}
+
+	/* unsigned LEB128; small numbers (lengths, counts, ids) take one byte. */
+	public void putVarLong(long l) {
+		ensure(10);
+		while ( (l & ~0x7FL) != 0 ) {
+			buffer.put((byte) ((l & 0x7F) | 0x80));
+			l >>>= 7;
+		}
+		buffer.put((byte) l);
+	}
+
+	public void putBytes(byte[] bytes) {
+		putVarLong(bytes.length);
+		ensure(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/*
+	   nullable.  Each UTF-16 char goes out as 1-3 bytes (like DataOutput's modified
+	   UTF-8, minus the 64k limit), so any java String survives the round trip.
+	 */
+	public void putString(String s) {
+		if ( s == null ) {
+			putVarLong(0);
+			return;
+		}
+
+		int length = s.length(), encodedLength = 0;
+		for ( int i = 0; i < length; i++ ) {
+			char c = s.charAt(i);
+			encodedLength += c < 0x80 ? 1 : (c < 0x800 ? 2 : 3);
+		}
+
+		putVarLong(encodedLength + 1L);
+		ensure(encodedLength);
+
+		for ( int i = 0; i < length; i++ ) {
+			char c = s.charAt(i);
+			if ( c < 0x80 ) {
+				buffer.put((byte) c);
+			} else if ( c < 0x800 ) {
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else {
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	/* nullable.  For the small set of strings that repeat on every row: databases, tables, columns. */
+	public void putName(String name) {
+		if ( name == null ) {
+			putVarLong(0);
+			return;
+		}
+
+		Integer id = names.get(name);
+		if ( id != null ) {
+			putVarLong(id + 2L);
+		} else {
+			names.put(name, names.size());
+			putVarLong(1);
+			putString(name);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.zendesk.maxwell.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+   cheap unique ids, in UUID form, for the kafka keys of rows without a
+   primary key.  UUID.randomUUID() goes to SecureRandom (and its lock) for
+   every id; these are a random per-process prefix plus a counter, so
+   SecureRandom is only asked once.  Ids never repeat within a process and,
+   with 122 random bits of starting state, won't collide between processes.
+   They're predictable, so don't use them as secrets.
+ */
+public class UniqueId {
+	private static final long mostSigBits;
+	private static final AtomicLong counter;
+
+	static {
+		SecureRandom random = new SecureRandom();
+		// version 4, as far as anyone parsing them is concerned.
+		mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+		counter = new AtomicLong(random.nextLong());
+	}
+
+	public static String next() {
+		// the top two bits are the IETF variant; the counter wraps within the other 62.
+		long leastSigBits = (counter.getAndIncrement() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(mostSigBits, leastSigBits).toString();
+	}
+}
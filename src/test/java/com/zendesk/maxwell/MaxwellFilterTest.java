@@ -0,0 +1,33 @@
+package com.zendesk.maxwell;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MaxwellFilterTest {
+	@Test
+	public void testRepeatedVerdictsAreStable() throws Exception {
+		MaxwellFilter filter = new MaxwellFilter("shard_1", null, null, "/^audit_/", null, "secrets");
+
+		for ( int i = 0; i < 3; i++ ) {
+			assertTrue(filter.matches("shard_1", "users"));
+			assertFalse(filter.matches("shard_1", "audit_log"));
+			assertFalse(filter.matches("shard_2", "users"));
+			assertTrue(filter.isTableBlacklisted("shard_1", "secrets"));
+			assertFalse(filter.isTableBlacklisted("shard_1", "users"));
+		}
+	}
+
+	@Test
+	public void testChangingPatternsDropsCachedVerdicts() throws Exception {
+		MaxwellFilter filter = new MaxwellFilter();
+		assertTrue(filter.matches("shard_1", "users"));
+		assertFalse(filter.isTableBlacklisted("shard_1", "users"));
+
+		filter.excludeTable("users");
+		filter.blacklistTable("users");
+		assertFalse(filter.matches("shard_1", "users"));
+		assertTrue(filter.isTableBlacklisted("shard_1", "users"));
+	}
+}
@@ -172,6 +172,7 @@ public class MaxwellTestSupport {
 
 		config.filter = filter;
 		config.bootstrapperType = "sync";
+		callback.configure(config);
 
 		callback.beforeReplicatorStart(mysql);
 
@@ -0,0 +1,121 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.row.CommitRowMap;
+import com.zendesk.maxwell.row.RowMap;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamTransactionsIntegrationTest extends MaxwellTestWithIsolatedServer {
+	private List<RowMap> getStreamedRows(final String[][] transactions) throws Exception {
+		MaxwellTestSupportCallback callback = new MaxwellTestSupportCallback() {
+			@Override
+			public void configure(MaxwellConfig config) {
+				config.shykoMode = true;
+				config.streamTransactions = true;
+			}
+
+			@Override
+			public void beforeReplicatorStart(MysqlIsolatedServer mysql) throws SQLException {
+				mysql.execute("create table shard_1.ignored ( id int )");
+			}
+
+			@Override
+			public void afterReplicatorStart(MysqlIsolatedServer mysql) throws SQLException {
+				Connection c = mysql.getNewConnection();
+				c.setAutoCommit(false);
+				for ( String[] tx : transactions ) {
+					for ( String s : tx )
+						c.createStatement().execute(s);
+					c.commit();
+				}
+			}
+		};
+
+		MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+		outputConfig.includesCommitInfo = true;
+		return MaxwellTestSupport.getRowsWithReplicator(server, excludeTable("ignored"), callback, outputConfig);
+	}
+
+	private void assertStreamedRow(RowMap r, Long id) {
+		assertEquals("insert", r.getRowType());
+		assertEquals("minimal", r.getTable());
+		assertEquals(id, r.getData("id"));
+		assertFalse(r.isTXCommit());
+	}
+
+	private void assertCommitMarker(RowMap marker, List<RowMap> rows) {
+		assertTrue(marker instanceof CommitRowMap);
+		assertEquals("commit", marker.getRowType());
+		assertEquals("shard_1", marker.getDatabase());
+		assertEquals("minimal", marker.getTable());
+		assertNotNull(marker.getXid());
+		assertTrue(marker.isTXCommit());
+
+		// the marker carries the commit position, past every row it closes.
+		for ( RowMap r : rows )
+			assertTrue(marker.getPosition().newerThan(r.getPosition()));
+	}
+
+	@Test
+	public void testRowsAreStreamedAheadOfACommitMarker() throws Exception {
+		List<RowMap> list = getStreamedRows(new String[][] {
+			{
+				"insert into minimal set id = 1, account_id = 1, text_field = 'a'",
+				"insert into minimal (id, account_id, text_field) values (2, 1, 'b'), (3, 1, 'c')",
+				"insert into ignored set id = 1"
+			}
+		});
+
+		assertEquals(4, list.size());
+		assertStreamedRow(list.get(0), 1L);
+		assertStreamedRow(list.get(1), 2L);
+		assertStreamedRow(list.get(2), 3L);
+
+		// the transaction ended on a filtered row; the marker closes the last one we streamed.
+		assertCommitMarker(list.get(3), list.subList(0, 3));
+	}
+
+	@Test
+	public void testEachTransactionGetsItsOwnMarker() throws Exception {
+		List<RowMap> list = getStreamedRows(new String[][] {
+			{ "insert into ignored set id = 1" },
+			{ "insert into minimal set id = 1, account_id = 1, text_field = 'a'" },
+			{ "insert into minimal set id = 2, account_id = 1, text_field = 'b'" }
+		});
+
+		// nothing of the first transaction went out, so it has no marker.
+		assertEquals(4, list.size());
+		assertStreamedRow(list.get(0), 1L);
+		assertCommitMarker(list.get(1), list.subList(0, 1));
+		assertStreamedRow(list.get(2), 2L);
+		assertCommitMarker(list.get(3), list.subList(2, 3));
+
+		assertNotEquals(list.get(1).getXid(), list.get(3).getXid());
+	}
+
+	@Test
+	public void testMaxwellRowsAreHeldBackUntilTheCommit() throws Exception {
+		List<RowMap> list = getStreamedRows(new String[][] {
+			{
+				"insert into minimal set id = 1, account_id = 1, text_field = 'a'",
+				"insert into maxwell.heartbeats set server_id = 1, client_id = 'stream_test', heartbeat = 1"
+			},
+			{ "insert into minimal set id = 2, account_id = 1, text_field = 'b'" }
+		});
+
+		/*
+		   the first transaction ends on one of maxwell's rows, which commits it
+		   the old way; nothing we output is marked as its commit.
+		 */
+		assertEquals(3, list.size());
+		assertStreamedRow(list.get(0), 1L);
+		assertStreamedRow(list.get(1), 2L);
+		assertCommitMarker(list.get(2), list.subList(1, 2));
+	}
+}
@@ -0,0 +1,78 @@
+package com.zendesk.maxwell.producer;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class InflightLimitTest {
+	/*
+	   acquire(size) on another thread, returning once that thread is either
+	   through (`acquired` counted down) or parked waiting for room.
+	 */
+	private static CountDownLatch acquireInBackground(final InflightLimit limit, final long size) throws InterruptedException {
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					limit.acquire(size);
+					acquired.countDown();
+				} catch ( InterruptedException e ) { }
+			}
+		};
+		t.start();
+
+		while ( acquired.getCount() > 0 && t.getState() != Thread.State.WAITING )
+			Thread.sleep(1);
+		return acquired;
+	}
+
+	@Test
+	public void testNoLimits() throws Exception {
+		InflightLimit limit = new InflightLimit(0, 0);
+		for ( int i = 0; i < 1000; i++ )
+			limit.acquire(1000);
+
+		assertEquals(1000, limit.getMessages());
+		assertEquals(1000000, limit.getBytes());
+		assertEquals(0, limit.getBlockedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testBlocksAtTheMessageLimit() throws Exception {
+		InflightLimit limit = new InflightLimit(2, 0);
+		limit.acquire(10);
+		limit.acquire(10);
+
+		CountDownLatch acquired = acquireInBackground(limit, 10);
+		assertEquals(1, acquired.getCount());
+
+		limit.release(10);
+		acquired.await();
+		assertEquals(2, limit.getMessages());
+		assertEquals(1, limit.getBlockedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testBlocksAtTheByteLimit() throws Exception {
+		InflightLimit limit = new InflightLimit(0, 100);
+		limit.acquire(60);
+
+		CountDownLatch acquired = acquireInBackground(limit, 60);
+		assertEquals(1, acquired.getCount());
+
+		limit.release(60);
+		acquired.await();
+		assertEquals(60, limit.getBytes());
+	}
+
+	@Test
+	public void testOversizedMessagesGoThroughAlone() throws Exception {
+		InflightLimit limit = new InflightLimit(0, 100);
+		limit.acquire(500);
+		assertEquals(500, limit.getBytes());
+		assertEquals(0, limit.getBlockedCount());
+	}
+}
@@ -5,6 +5,8 @@ import com.zendesk.maxwell.replication.Position;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.junit.Assert.*;
 
 /**
@@ -15,13 +17,14 @@ public class InflightMessageListTest {
 	static Position p2 = new Position(BinlogPosition.at(2, "f"), 0L);
 	static Position p3 = new Position(BinlogPosition.at(3, "f"), 0L);
 	InflightMessageList list;
+	InflightMessageList.Message m1, m2, m3;
 
 	@Before
 	public void setupBefore() {
 		list = new InflightMessageList();
-		list.addMessage(p1);
-		list.addMessage(p2);
-		list.addMessage(p3);
+		m1 = list.addMessage(p1);
+		m2 = list.addMessage(p2);
+		m3 = list.addMessage(p3);
 	}
 
 	@Test
@@ -29,13 +32,13 @@ public class InflightMessageListTest {
 		Position ret;
 
 
-		ret = list.completeMessage(p1);
+		ret = list.completeMessage(m1);
 		assert(ret.equals(p1));
 
-		ret = list.completeMessage(p2);
+		ret = list.completeMessage(m2);
 		assert(ret.equals(p2));
 
-		ret = list.completeMessage(p3);
+		ret = list.completeMessage(m3);
 		assert(ret.equals(p3));
 
 		assert(list.size() == 0);
@@ -45,13 +48,49 @@ public class InflightMessageListTest {
 	public void testOutOfOrderComplete() {
 		Position ret;
 
-		ret = list.completeMessage(p3);
+		ret = list.completeMessage(m3);
 		assert(ret == null);
 
-		ret = list.completeMessage(p2);
+		ret = list.completeMessage(m2);
 		assert(ret == null);
 
-		ret = list.completeMessage(p1);
+		ret = list.completeMessage(m1);
 		assertEquals(p3, ret);
+		assertEquals(0, list.size());
+	}
+
+	@Test
+	public void testConcurrentCompletion() throws Exception {
+		final int count = 200000;
+		final InflightMessageList list = new InflightMessageList();
+		final InflightMessageList.Message[] messages = new InflightMessageList.Message[count];
+		for ( int i = 0; i < count; i++ )
+			messages[i] = list.addMessage(new Position(BinlogPosition.at(i + 1, "f"), 0L));
+		assertEquals(count, list.size());
+
+		// four threads complete interleaved quarters of the list, racing each other up the watermark.
+		final AtomicLong highest = new AtomicLong();
+		Thread[] threads = new Thread[4];
+		for ( int t = 0; t < threads.length; t++ ) {
+			final int start = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for ( int i = start; i < count; i += 4 ) {
+						Position p = list.completeMessage(messages[i]);
+						if ( p != null ) {
+							long offset = p.getBinlogPosition().getOffset();
+							while ( highest.get() < offset && !highest.compareAndSet(highest.get(), offset) ) { }
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for ( Thread t : threads )
+			t.join();
+
+		assertEquals(0, list.size());
+		assertEquals(count, highest.get());
 	}
 }
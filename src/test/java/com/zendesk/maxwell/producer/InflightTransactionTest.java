@@ -0,0 +1,98 @@
+package com.zendesk.maxwell.producer;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class InflightTransactionTest {
+	@Test
+	public void testCommitWaitsForTheRestOfTheTransaction() {
+		AbstractAsyncProducer.CallbackCompleter first = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter second = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter commit = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.addRow();
+		transaction.addRow();
+		transaction.addCommit(commit);
+
+		// acknowledged out of order, the way separate partitions may be.
+		transaction.rowCompleted(commit);
+		transaction.rowCompleted(second);
+		verify(second).markCompleted();
+		verify(commit, never()).markCompleted();
+
+		transaction.rowCompleted(first);
+		verify(first).markCompleted();
+		verify(commit).markCompleted();
+	}
+
+	@Test
+	public void testRowsDoneBeforeTheCommitIsAddedDontCompleteIt() {
+		AbstractAsyncProducer.CallbackCompleter row = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter commit = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.rowCompleted(row);
+		verify(row).markCompleted();
+
+		transaction.addRow();
+		transaction.addCommit(commit);
+		verify(commit, never()).markCompleted();
+
+		transaction.rowCompleted(commit);
+		verify(commit).markCompleted();
+	}
+
+	@Test(timeout = 5000)
+	public void testAwaitCompletionReturnsOnceEverythingIsAcknowledged() throws Exception {
+		final AbstractAsyncProducer.CallbackCompleter row = mock(AbstractAsyncProducer.CallbackCompleter.class);
+		AbstractAsyncProducer.CallbackCompleter commit = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		final InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.addRow();
+		transaction.addCommit(commit);
+		transaction.rowCompleted(commit);
+
+		Thread ack = new Thread() {
+			@Override
+			public void run() {
+				transaction.rowCompleted(row);
+			}
+		};
+		ack.start();
+
+		assertTrue(transaction.awaitCompletion(5, TimeUnit.SECONDS));
+		verify(commit).markCompleted();
+	}
+
+	@Test(timeout = 5000)
+	public void testACommitWithNothingOutstandingIsDoneRightAway() throws Exception {
+		AbstractAsyncProducer.CallbackCompleter commit = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addCommit(commit);
+
+		assertTrue(transaction.awaitCompletion(5, TimeUnit.SECONDS));
+		verify(commit).markCompleted();
+	}
+
+	@Test(timeout = 5000)
+	public void testWaitingForARowThatNeverCompletesGivesUp() throws Exception {
+		AbstractAsyncProducer.CallbackCompleter commit = mock(AbstractAsyncProducer.CallbackCompleter.class);
+
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.addRow();
+		transaction.addCommit(commit);
+
+		assertFalse(transaction.awaitCompletion(10, TimeUnit.MILLISECONDS));
+		verify(commit, never()).markCompleted();
+	}
+}
@@ -11,10 +11,17 @@ import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.NotEnoughReplicasException;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import static org.mockito.Mockito.*;
 
 public class KafkaCallbackTest {
+	private static InflightTransaction committedTransaction(AbstractAsyncProducer.CallbackCompleter cc) {
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.addCommit(cc);
+		return transaction;
+	}
 
 	@Test
 	public void shouldIgnoreProducerErrorByDefault() {
@@ -22,8 +29,8 @@ public class KafkaCallbackTest {
 		MaxwellConfig config = new MaxwellConfig();
 		when(context.getConfig()).thenReturn(config);
 		AbstractAsyncProducer.CallbackCompleter cc = mock(AbstractAsyncProducer.CallbackCompleter.class);
-		KafkaCallback callback = new KafkaCallback(cc,
-			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key", "value",
+		KafkaCallback callback = new KafkaCallback(cc, committedTransaction(cc),
+			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key".getBytes(), "value".getBytes(),
 			new Timer(), new Counter(), new Counter(), new Meter(), new Meter(),
 			context);
 		NotEnoughReplicasException error = new NotEnoughReplicasException("blah");
@@ -38,13 +45,15 @@ public class KafkaCallbackTest {
 		config.ignoreProducerError = false;
 		when(context.getConfig()).thenReturn(config);
 		AbstractAsyncProducer.CallbackCompleter cc = mock(AbstractAsyncProducer.CallbackCompleter.class);
-		KafkaCallback callback = new KafkaCallback(cc,
-			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key", "value",
+		KafkaCallback callback = new KafkaCallback(cc, committedTransaction(cc),
+			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key".getBytes(), "value".getBytes(),
 			new Timer(), new Counter(), new Counter(), new Meter(), new Meter(),
 			context);
 		NotEnoughReplicasException error = new NotEnoughReplicasException("blah");
 		callback.onCompletion(new RecordMetadata(new TopicPartition("topic", 1), 1, 1), error);
-		verify(context).terminate(error);
-		verifyZeroInteractions(cc);
+		InOrder inOrder = inOrder(cc, context);
+		inOrder.verify(cc).markFailed();
+		inOrder.verify(context).terminate(error);
+		verify(cc, never()).markCompleted();
 	}
 }
@@ -0,0 +1,79 @@
+package com.zendesk.maxwell.producer;
+
+import com.codahale.metrics.Timer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class KafkaPartitionCountsTest {
+	private static List<PartitionInfo> partitions(String topic, int count) {
+		List<PartitionInfo> list = new ArrayList<>();
+		for ( int i = 0; i < count; i++ )
+			list.add(new PartitionInfo(topic, i, null, null, null));
+		return list;
+	}
+
+	@Test
+	public void testCountsAreOnlyFetchedOnce() {
+		Producer<?, ?> kafka = mock(Producer.class);
+		when(kafka.partitionsFor("maxwell")).thenReturn(partitions("maxwell", 4));
+
+		KafkaPartitionCounts counts = new KafkaPartitionCounts(kafka, new Timer(), 0);
+		KafkaPartitionCounts.Topic topic = counts.get("maxwell");
+		for ( int i = 0; i < 10; i++ ) {
+			assertSame(topic, counts.get("maxwell"));
+			assertEquals(4, counts.count("maxwell"));
+		}
+		verify(kafka, times(1)).partitionsFor("maxwell");
+	}
+
+	@Test
+	public void testRefreshPicksUpNewPartitions() {
+		Producer<?, ?> kafka = mock(Producer.class);
+		when(kafka.partitionsFor("maxwell")).thenReturn(partitions("maxwell", 4), partitions("maxwell", 8));
+		Timer timer = new Timer();
+
+		KafkaPartitionCounts counts = new KafkaPartitionCounts(kafka, timer, 0);
+		KafkaPartitionCounts.Topic topic = counts.get("maxwell");
+		assertEquals(4, topic.count);
+
+		counts.refresh();
+		assertEquals(8, topic.count);
+		assertEquals(1, timer.getCount());
+	}
+
+	@Test
+	public void testUnusedTopicsExpire() {
+		Producer<?, ?> kafka = mock(Producer.class);
+		when(kafka.partitionsFor("used")).thenReturn(partitions("used", 4));
+		when(kafka.partitionsFor("unused")).thenReturn(partitions("unused", 4));
+
+		KafkaPartitionCounts counts = new KafkaPartitionCounts(kafka, new Timer(), 0);
+		KafkaPartitionCounts.Topic used = counts.get("used");
+		KafkaPartitionCounts.Topic unused = counts.get("unused");
+
+		// both are new, so both get refreshed once.
+		counts.refresh();
+		assertEquals(2, counts.size());
+
+		used.markUsed();
+		counts.refresh();
+		assertEquals(1, counts.size());
+		assertFalse(used.expired);
+		assertTrue(unused.expired);
+		verify(kafka, times(3)).partitionsFor("used");
+		verify(kafka, times(2)).partitionsFor("unused");
+
+		// nothing refreshes an expired topic; asking again looks it up afresh.
+		counts.refresh();
+		verify(kafka, times(2)).partitionsFor("unused");
+		assertNotSame(unused, counts.get("unused"));
+		verify(kafka, times(3)).partitionsFor("unused");
+	}
+}
@@ -6,10 +6,17 @@ import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import static org.mockito.Mockito.*;
 
 public class KinesisCallbackTest {
+	private static InflightTransaction committedTransaction(AbstractAsyncProducer.CallbackCompleter cc) {
+		InflightTransaction transaction = new InflightTransaction();
+		transaction.addRow();
+		transaction.addCommit(cc);
+		return transaction;
+	}
 
 	@Test
 	public void shouldIgnoreProducerErrorByDefault() {
@@ -17,7 +24,7 @@ public class KinesisCallbackTest {
 		MaxwellConfig config = new MaxwellConfig();
 		when(context.getConfig()).thenReturn(config);
 		AbstractAsyncProducer.CallbackCompleter cc = mock(AbstractAsyncProducer.CallbackCompleter.class);
-		KinesisCallback callback = new KinesisCallback(cc,
+		KinesisCallback callback = new KinesisCallback(cc, committedTransaction(cc),
 			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key", "value",
 			context);
 		IrrecoverableError error = new IrrecoverableError("blah");
@@ -32,12 +39,14 @@ public class KinesisCallbackTest {
 		config.ignoreProducerError = false;
 		when(context.getConfig()).thenReturn(config);
 		AbstractAsyncProducer.CallbackCompleter cc = mock(AbstractAsyncProducer.CallbackCompleter.class);
-		KinesisCallback callback = new KinesisCallback(cc,
+		KinesisCallback callback = new KinesisCallback(cc, committedTransaction(cc),
 			new Position(new BinlogPosition(1, "binlog-1"), 0L), "key", "value",
 			context);
 		IrrecoverableError error = new IrrecoverableError("blah");
 		callback.onFailure(error);
-		verify(context).terminate(any(RuntimeException.class));
-		verifyZeroInteractions(cc);
+		InOrder inOrder = inOrder(cc, context);
+		inOrder.verify(cc).markFailed();
+		inOrder.verify(context).terminate(any(RuntimeException.class));
+		verify(cc, never()).markCompleted();
 	}
 }
@@ -1,12 +1,135 @@
 package com.zendesk.maxwell.producer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.metrics.MaxwellMetrics;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.row.CommitRowMap;
+import com.zendesk.maxwell.row.RowMap;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
 
 public class MaxwellKafkaProducerWorkerTest {
+	private static final String TOPIC = "maxwell";
+
+	/* a MockProducer whose flush() leaves the acks to the test */
+	private static class SlowProducer extends MockProducer<byte[], byte[]> {
+		SlowProducer(int partitions) {
+			super(cluster(partitions), false, new DefaultPartitioner(), new ByteArraySerializer(), new ByteArraySerializer());
+		}
+
+		@Override
+		public synchronized void flush() { }
+	}
+
+	/* a send the test acknowledges whenever it likes */
+	private static class Send {
+		final ProducerRecord<byte[], byte[]> record;
+		final Callback callback;
+		final String thread;
+
+		Send(ProducerRecord<byte[], byte[]> record, Callback callback, String thread) {
+			this.record = record;
+			this.callback = callback;
+			this.thread = thread;
+		}
+
+		long id() throws Exception {
+			return new ObjectMapper().readTree(record.value()).get("data").get("id").asLong();
+		}
+
+		void complete() {
+			callback.onCompletion(new RecordMetadata(new TopicPartition(record.topic(), record.partition()), 0, 0), null);
+		}
+	}
+
+	/* keeps every send, and which thread made it, instead of completing them in order */
+	private static class CapturingProducer extends SlowProducer {
+		final List<Send> sends = Collections.synchronizedList(new ArrayList<Send>());
+
+		CapturingProducer(int partitions) {
+			super(partitions);
+		}
+
+		@Override
+		public Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record, Callback callback) {
+			sends.add(new Send(record, callback, Thread.currentThread().getName()));
+			return null;
+		}
+	}
+
+	private static Cluster cluster(int partitions) {
+		Node node = new Node(0, "localhost", 9092);
+		List<PartitionInfo> list = new ArrayList<>();
+		for ( int i = 0; i < partitions; i++ )
+			list.add(new PartitionInfo(TOPIC, i, node, new Node[] { node }, new Node[] { node }));
+		return new Cluster(Collections.singletonList(node), list, Collections.<String>emptySet());
+	}
+
+	private static Position position(long offset) {
+		return new Position(new BinlogPosition(offset, "binlog-1"), 0L);
+	}
+
+	private static RowMap row(String database, long offset, boolean commit) {
+		RowMap r = new RowMap("insert", database, "table", 1L, new ArrayList<String>(), position(offset));
+		r.putData("id", offset);
+		if ( commit )
+			r.setTXCommit();
+		return r;
+	}
+
+	private static MaxwellContext context(MaxwellConfig config) {
+		MaxwellContext context = mock(MaxwellContext.class);
+		when(context.getConfig()).thenReturn(config);
+		when(context.getMaxwellMetrics()).thenReturn(new MaxwellMetrics());
+		return context;
+	}
+
+	private static Thread start(MaxwellKafkaProducerWorker worker) {
+		Thread t = new Thread(worker, "maxwell-kafka-worker");
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
+	private static void awaitSent(MockProducer<byte[], byte[]> kafka, int count) throws InterruptedException {
+		while ( kafka.history().size() < count )
+			Thread.sleep(1);
+		assertEquals(count, kafka.history().size());
+	}
+
+	/* the worker is waiting for a transaction to be acknowledged */
+	private static void awaitBarrier(Thread worker) throws InterruptedException {
+		while ( worker.getState() != Thread.State.TIMED_WAITING )
+			Thread.sleep(1);
+	}
 
 	@Test
 	public void constructNewWorkerWithNullTopic() {
@@ -16,4 +139,193 @@ public class MaxwellKafkaProducerWorkerTest {
 		//shouldn't throw NPE
 		new MaxwellKafkaProducerWorker(kafkaProperties, kafkaTopic, null, new MaxwellConfig(), new MaxwellMetrics());
 	}
+
+	@Test(timeout = 10000)
+	public void testFlushTransactionsWaitsForTheAcks() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.kafkaFlushTransactions = true;
+		MaxwellContext context = context(config);
+
+		SlowProducer kafka = new SlowProducer(1);
+		ArrayBlockingQueue<RowMap> queue = new ArrayBlockingQueue<>(100);
+		MaxwellKafkaProducerWorker worker = new MaxwellKafkaProducerWorker(kafka, TOPIC, queue, config, new MaxwellMetrics());
+		worker.setContext(context);
+		Thread t = start(worker);
+
+		queue.put(row("db", 1, false));
+		queue.put(row("db", 2, true));
+		queue.put(row("db", 3, true));
+
+		awaitSent(kafka, 2);
+		awaitBarrier(t);
+
+		kafka.completeNext();
+		assertEquals(2, kafka.history().size());
+		verify(context, never()).setPosition(any(Position.class));
+
+		kafka.completeNext();
+		verify(context).setPosition(position(2));
+		awaitSent(kafka, 3);
+
+		worker.requestStop();
+		t.join();
+	}
+
+	@Test(timeout = 10000)
+	public void testSkippedCommitMarkerEndsItsTransaction() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.kafkaFlushTransactions = true;
+		config.outputConfig.includesCommitInfo = false;
+		MaxwellContext context = context(config);
+
+		SlowProducer kafka = new SlowProducer(1);
+		ArrayBlockingQueue<RowMap> queue = new ArrayBlockingQueue<>(100);
+		MaxwellKafkaProducerWorker worker = new MaxwellKafkaProducerWorker(kafka, TOPIC, queue, config, new MaxwellMetrics());
+		worker.setContext(context);
+		Thread t = start(worker);
+
+		queue.put(row("db", 1, false));
+		queue.put(new CommitRowMap("db", "table", 1L, position(2)));
+		queue.put(row("db", 3, true));
+
+		// the marker isn't sent, but the next transaction still waits on it.
+		awaitSent(kafka, 1);
+		awaitBarrier(t);
+		assertEquals(1, kafka.history().size());
+
+		kafka.completeNext();
+		verify(context).setPosition(position(2));
+		awaitSent(kafka, 2);
+
+		worker.requestStop();
+		t.join();
+	}
+
+	@Test(timeout = 10000)
+	public void testStoppingGivesUpOnAFailedTransaction() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.kafkaFlushTransactions = true;
+		config.ignoreProducerError = false;
+		MaxwellContext context = context(config);
+
+		SlowProducer kafka = new SlowProducer(1);
+		ArrayBlockingQueue<RowMap> queue = new ArrayBlockingQueue<>(100);
+		MaxwellKafkaProducerWorker worker = new MaxwellKafkaProducerWorker(kafka, TOPIC, queue, config, new MaxwellMetrics());
+		worker.setContext(context);
+		Thread t = start(worker);
+
+		queue.put(row("db", 1, true));
+		queue.put(row("db", 2, true));
+
+		awaitSent(kafka, 1);
+		awaitBarrier(t);
+
+		RuntimeException error = new RuntimeException("broker's gone");
+		kafka.errorNext(error);
+		verify(context).terminate(error);
+
+		// the failed row will never be acknowledged; stopping ends the wait.
+		worker.requestStop();
+		t.join();
+		assertFalse(t.isAlive());
+		assertEquals(1, kafka.history().size());
+		verify(context, never()).setPosition(any(Position.class));
+	}
+
+	@Test(timeout = 10000)
+	public void testTerminalFailureFreesItsInflightSlot() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.ignoreProducerError = false;
+		config.producerInflightMessages = 1;
+		MaxwellContext context = context(config);
+
+		SlowProducer kafka = new SlowProducer(1);
+		ArrayBlockingQueue<RowMap> queue = new ArrayBlockingQueue<>(100);
+		MaxwellKafkaProducerWorker worker = new MaxwellKafkaProducerWorker(kafka, TOPIC, queue, config, new MaxwellMetrics());
+		worker.setContext(context);
+		Thread t = start(worker);
+
+		queue.put(row("db", 1, true));
+		queue.put(row("db", 2, true));
+
+		// the second row waits for the first's slot.
+		awaitSent(kafka, 1);
+		while ( !queue.isEmpty() || t.getState() != Thread.State.WAITING )
+			Thread.sleep(1);
+		assertEquals(1, kafka.history().size());
+
+		RuntimeException error = new RuntimeException("broker's gone");
+		kafka.errorNext(error);
+		verify(context).terminate(error);
+
+		// which it gets back, so the worker isn't stuck when it's asked to stop.
+		awaitSent(kafka, 2);
+		verify(context, never()).setPosition(any(Position.class));
+
+		worker.requestStop();
+		worker.awaitStop(100L);
+	}
+
+	@Test(timeout = 10000)
+	public void testProducerThreadsKeepPartitionsInOrder() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.kafkaProducerThreads = 4;
+		MaxwellContext context = context(config);
+
+		CapturingProducer kafka = new CapturingProducer(8);
+		ArrayBlockingQueue<RowMap> queue = new ArrayBlockingQueue<>(100);
+		MaxwellKafkaProducerWorker worker = new MaxwellKafkaProducerWorker(kafka, TOPIC, queue, config, new MaxwellMetrics());
+		worker.setContext(context);
+		Thread t = start(worker);
+
+		// two transactions of 20 rows each, partitioned by database.
+		for ( int i = 1; i <= 40; i++ )
+			queue.put(row("db" + (i % 8), i, i % 20 == 0));
+
+		while ( kafka.sends.size() < 40 )
+			Thread.sleep(1);
+
+		Map<Integer, String> threadByPartition = new HashMap<>();
+		Map<Integer, Long> lastIdByPartition = new HashMap<>();
+		Set<String> threads = new HashSet<>();
+		for ( Send send : kafka.sends ) {
+			int partition = send.record.partition();
+			threads.add(send.thread);
+
+			String thread = threadByPartition.get(partition);
+			if ( thread == null )
+				threadByPartition.put(partition, send.thread);
+			else
+				assertEquals(thread, send.thread);
+
+			Long lastId = lastIdByPartition.get(partition);
+			assertTrue(lastId == null || lastId < send.id());
+			lastIdByPartition.put(partition, send.id());
+		}
+		assertTrue(threads.size() > 1);
+
+		/*
+		   acknowledge everything backwards: each commit row before the rows of
+		   its transaction, the second transaction before the first.  Nothing is
+		   checkpointed until the very last row of the first transaction is in.
+		 */
+		Send first = null;
+		for ( int i = kafka.sends.size() - 1; i >= 0; i-- ) {
+			Send send = kafka.sends.get(i);
+			if ( send.id() == 1 ) {
+				first = send;
+				continue;
+			}
+			send.complete();
+		}
+		verify(context, never()).setPosition(any(Position.class));
+
+		first.complete();
+		verify(context).setPosition(position(40));
+		verify(context, times(1)).setPosition(any(Position.class));
+
+		// the worker's idle in queue.take(); awaitStop interrupts it.
+		worker.requestStop();
+		worker.awaitStop(100L);
+	}
 }
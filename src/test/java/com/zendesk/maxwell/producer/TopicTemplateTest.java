@@ -0,0 +1,35 @@
+package com.zendesk.maxwell.producer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopicTemplateTest {
+	@Test
+	public void testFillsInDatabaseAndTable() {
+		TopicTemplate t = new TopicTemplate("namespace_%{database}_%{table}");
+		assertTrue(t.isInterpolated());
+		assertEquals("namespace_shard_1_users", t.resolve("shard_1", "users"));
+
+		assertEquals("users.shard_1.users", new TopicTemplate("%{table}.%{database}.%{table}").resolve("shard_1", "users"));
+		assertEquals("shard_1", new TopicTemplate("%{database}").resolve("shard_1", "users"));
+	}
+
+	@Test
+	public void testStaticTopics() {
+		for ( String topic : new String[] { "maxwell", "", "odd_%{column}", "%{database" } ) {
+			TopicTemplate t = new TopicTemplate(topic);
+			assertFalse(t.isInterpolated());
+			assertEquals(topic, t.resolve("shard_1", "users"));
+		}
+	}
+
+	@Test
+	public void testNamesGoInLiterally() {
+		TopicTemplate t = new TopicTemplate("%{database}_%{table}");
+		assertEquals("a$1_b\\2", t.resolve("a$1", "b\\2"));
+		assertEquals("%{table}_t", t.resolve("%{table}", "t"));
+	}
+}
@@ -0,0 +1,118 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.row.RowMap;
+import com.zendesk.maxwell.row.RowMapBuffer;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinlogConnectorRowDecoderTest {
+	private static final Position START = new Position(new BinlogPosition(4L, "mysql-bin.000001"), 0L);
+
+	private Table buildTable() {
+		List<ColumnDef> columns = new ArrayList<>();
+		columns.add(ColumnDef.build("id", null, "int", 0, true, null, null));
+		columns.add(ColumnDef.build("name", "utf8", "varchar", 1, false, null, null));
+		return new Table("shard_1", "users", "utf8", columns, Arrays.asList("id"));
+	}
+
+	/* a rows event inserting ids firstId, firstId + 1, ... */
+	private BinlogConnectorEvent insert(int firstId, int rows) throws Exception {
+		EventHeaderV4 header = new EventHeaderV4();
+		header.setEventType(EventType.EXT_WRITE_ROWS);
+		header.setTimestamp(1000L);
+		header.setNextPosition(1000L + firstId);
+
+		BitSet columns = new BitSet();
+		columns.set(0, 2);
+
+		List<Serializable[]> list = new ArrayList<>();
+		for ( int id = firstId; id < firstId + rows; id++ )
+			list.add(new Serializable[] { id, ("user " + id).getBytes("UTF-8") });
+
+		WriteRowsEventData data = new WriteRowsEventData();
+		data.setIncludedColumns(columns);
+		data.setRows(list);
+		return new BinlogConnectorEvent(new Event(header, data), "mysql-bin.000001", null, null);
+	}
+
+	private List<Long> ids(RowMapBuffer buffer) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		while ( !buffer.isEmpty() )
+			ids.add((Long) buffer.removeFirst().getData("id"));
+		return ids;
+	}
+
+	@Test(timeout = 10000)
+	public void testRowsComeOutInBinlogOrderAcrossFlushes() throws Exception {
+		BinlogConnectorRowDecoder decoder = new BinlogConnectorRowDecoder(4, Collections.<Pattern>emptyList());
+		Table table = buildTable();
+
+		try {
+			long next = 0;
+			for ( int tx = 0; tx < 5; tx++ ) {
+				RowMapBuffer buffer = new RowMapBuffer(1000);
+				List<Long> expected = new ArrayList<>();
+
+				// events of uneven sizes, so the pool finishes them out of order.
+				for ( int e = 0; e < 20; e++ ) {
+					int rows = 1 + (e * 37) % 50;
+					decoder.decode(insert((int) next, rows), table, START, buffer);
+					for ( int i = 0; i < rows; i++ )
+						expected.add(next++);
+				}
+
+				decoder.flush(buffer);
+				assertEquals(expected, ids(buffer));
+			}
+		} finally {
+			decoder.stop();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testPooledRowsMatchInlineOnes() throws Exception {
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+		config.excludeColumns.add(Pattern.compile("name"));
+
+		BinlogConnectorRowDecoder inline = new BinlogConnectorRowDecoder(1, config.excludeColumns);
+		BinlogConnectorRowDecoder pooled = new BinlogConnectorRowDecoder(2, config.excludeColumns);
+		Table table = buildTable();
+
+		try {
+			RowMapBuffer inlineRows = new RowMapBuffer(1000);
+			RowMapBuffer pooledRows = new RowMapBuffer(1000);
+			inline.decode(insert(1, 3), table, START, inlineRows);
+			pooled.decode(insert(1, 3), table, START, pooledRows);
+			pooled.flush(pooledRows);
+
+			assertEquals(3L, (long) pooledRows.size());
+			while ( !inlineRows.isEmpty() ) {
+				RowMap expected = inlineRows.removeFirst();
+				RowMap actual = pooledRows.removeFirst();
+
+				assertEquals(expected.toJSON(config), actual.toJSON(config));
+				assertEquals(expected.getPosition(), actual.getPosition());
+				assertEquals(expected.getData("name"), actual.getData("name"));
+			}
+		} finally {
+			inline.stop();
+			pooled.stop();
+		}
+	}
+}
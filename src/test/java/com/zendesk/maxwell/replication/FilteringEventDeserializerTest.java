@@ -0,0 +1,101 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class FilteringEventDeserializerTest {
+	private static final int TABLE_MAP = 19;
+	private static final int WRITE_ROWS_V1 = 23;
+	private static final int MYSQL_TYPE_LONG = 3;
+
+	private static void writeInt(ByteArrayOutputStream out, long value, int length) {
+		for ( int i = 0; i < length; i++ )
+			out.write((int) (value >>> (8 * i)) & 0xFF);
+	}
+
+	private static byte[] event(int type, byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeInt(out, 0, 4);                    // timestamp
+		out.write(type);
+		writeInt(out, 1, 4);                    // server id
+		writeInt(out, 19 + data.length, 4);     // event length
+		writeInt(out, 0, 4);                    // next position
+		writeInt(out, 0, 2);                    // flags
+		out.write(data, 0, data.length);
+		return out.toByteArray();
+	}
+
+	private static void writeName(ByteArrayOutputStream out, String name) {
+		out.write(name.length());
+		out.write(name.getBytes(), 0, name.length());
+		out.write(0);
+	}
+
+	// a one-column (INT NOT NULL) table
+	private static byte[] tableMap(long tableId, String database, String table) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeInt(out, tableId, 6);
+		writeInt(out, 0, 2);
+		writeName(out, database);
+		writeName(out, table);
+		out.write(1);                 // column count
+		out.write(MYSQL_TYPE_LONG);
+		out.write(0);                 // metadata length
+		out.write(0);                 // nullability bitmap
+		return event(TABLE_MAP, out.toByteArray());
+	}
+
+	private static byte[] writeRows(long tableId, int... values) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeInt(out, tableId, 6);
+		writeInt(out, 0, 2);
+		out.write(1);                 // column count
+		out.write(1);                 // columns present bitmap
+		for ( int v : values ) {
+			out.write(0);             // null bitmap
+			writeInt(out, v, 4);
+		}
+		return event(WRITE_ROWS_V1, out.toByteArray());
+	}
+
+	@Test
+	public void testSkipsRowsOfIgnoredTables() throws Exception {
+		FilteringEventDeserializer deserializer = new FilteringEventDeserializer(new FilteringEventDeserializer.TableFilter() {
+			@Override
+			public boolean isTableIgnored(String database, String table) {
+				return table.equals("audit_log");
+			}
+		});
+
+		ByteArrayOutputStream binlog = new ByteArrayOutputStream();
+		binlog.write(tableMap(1, "shard_1", "audit_log"));
+		binlog.write(writeRows(1, 5, 6, 7));
+		binlog.write(tableMap(2, "shard_1", "users"));
+		binlog.write(writeRows(2, 8, 9));
+
+		ByteArrayInputStream in = new ByteArrayInputStream(binlog.toByteArray());
+
+		assertThat(deserializer.nextEvent(in).getHeader().getEventType(), equalTo(EventType.TABLE_MAP));
+
+		WriteRowsEventData skipped = deserializer.nextEvent(in).getData();
+		assertThat(skipped.getTableId(), equalTo(1L));
+		assertThat(skipped.getRows().size(), equalTo(0));
+
+		assertThat(deserializer.nextEvent(in).getHeader().getEventType(), equalTo(EventType.TABLE_MAP));
+
+		Event kept = deserializer.nextEvent(in);
+		WriteRowsEventData keptData = kept.getData();
+		assertThat(keptData.getTableId(), equalTo(2L));
+		assertThat(keptData.getRows().size(), equalTo(2));
+		assertThat(keptData.getRows().get(1), equalTo(new Serializable[] { 9 }));
+	}
+}
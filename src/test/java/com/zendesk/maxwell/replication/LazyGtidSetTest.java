@@ -0,0 +1,54 @@
+package com.zendesk.maxwell.replication;
+
+import com.github.shyiko.mysql.binlog.GtidSet;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class LazyGtidSetTest {
+	private static final String UUID = "de278ad0-2106-11e4-9f8e-6edd0ca20947";
+
+	@Test
+	public void testRendersLikeGtidSet() {
+		GtidSet expected = new GtidSet(UUID + ":1-2");
+		LazyGtidSet lazy = LazyGtidSet.of(UUID + ":1-2");
+
+		for ( int i = 3; i < 2500; i++ ) {
+			expected.add(UUID + ":" + i);
+			lazy = lazy.add(UUID + ":" + i);
+		}
+
+		assertThat(lazy.toString(), equalTo(expected.toString()));
+	}
+
+	@Test
+	public void testAddLeavesParentAlone() {
+		LazyGtidSet first = LazyGtidSet.of(UUID + ":1-5");
+		LazyGtidSet second = first.add(UUID + ":6");
+
+		assertThat(second.isRendered(), equalTo(false));
+		assertThat(second.toString(), equalTo(UUID + ":1-6"));
+		assertThat(first.toString(), equalTo(UUID + ":1-5"));
+	}
+
+	@Test
+	public void testPositionsSharingASetAreEqual() throws Exception {
+		LazyGtidSet set = LazyGtidSet.of(UUID + ":1-5").add(UUID + ":6");
+		BinlogPosition p = new BinlogPosition(set, UUID + ":6", 100L, "mysql-bin.000001");
+
+		assertThat(p.equals(new BinlogPosition(set, UUID + ":6", 100L, "mysql-bin.000001")), equalTo(true));
+		assertThat(set.isRendered(), equalTo(false));
+		assertThat(p.equals(new BinlogPosition(UUID + ":1-6", null, 100L, "mysql-bin.000001")), equalTo(true));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ObjectOutputStream(bytes).writeObject(p);
+		Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertThat(((BinlogPosition) copy).getGtidSetStr(), equalTo(UUID + ":1-6"));
+	}
+}
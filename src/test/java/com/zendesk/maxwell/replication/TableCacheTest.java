@@ -0,0 +1,64 @@
+package com.zendesk.maxwell.replication;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.schema.Database;
+import com.zendesk.maxwell.schema.Schema;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableDrop;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TableCacheTest {
+	private Schema schema;
+	private Table users, orders;
+	private TableCache cache;
+
+	@Before
+	public void setUp() {
+		schema = new Schema(new ArrayList<Database>(), "utf8", CaseSensitivity.CASE_SENSITIVE);
+		Database db = new Database("shard_1", "utf8");
+		schema.addDatabase(db);
+		users = db.buildTable("users", "utf8");
+		orders = db.buildTable("orders", "utf8");
+
+		cache = new TableCache();
+		cache.processEvent(schema, null, 1L, "shard_1", "users");
+		cache.processEvent(schema, null, 2L, "shard_1", "orders");
+	}
+
+	@Test
+	public void testSchemaChangeOnlyInvalidatesAffectedTables() throws Exception {
+		new ResolvedTableDrop("shard_1", "users").apply(schema);
+		cache.invalidate(new ResolvedTableDrop("shard_1", "users"));
+
+		assertNull(cache.getTable(1L));
+		assertSame(orders, cache.getTable(2L));
+	}
+
+	@Test
+	public void testRotateKeepsTablesConfirmedByTableMap() throws Exception {
+		cache.rotate();
+		assertNull(cache.getTable(1L));
+
+		// the schema no longer resolves "users", so getting it back proves we didn't look it up again.
+		schema.findDatabase("shard_1").removeTable("users");
+		cache.processEvent(schema, null, 1L, "shard_1", "users");
+		assertSame(users, cache.getTable(1L));
+
+		// not confirmed before the next rotate: gone.
+		cache.rotate();
+		cache.rotate();
+		assertNull(cache.getTable(2L));
+	}
+
+	@Test
+	public void testReusedTableIdIsResolvedAgain() throws Exception {
+		cache.processEvent(schema, null, 1L, "shard_1", "orders");
+		assertSame(orders, cache.getTable(1L));
+	}
+}
@@ -0,0 +1,230 @@
+package com.zendesk.maxwell.row;
+
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import com.zendesk.maxwell.schema.columndef.StringColumnDef;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyRowMapTest {
+	private static final Position POSITION = new Position(new BinlogPosition(4L, "mysql-bin.000001"), 0L);
+
+	private Table buildTable() {
+		List<ColumnDef> columns = new ArrayList<>();
+		columns.add(ColumnDef.build("id", null, "int", 0, true, null, null));
+		columns.add(ColumnDef.build("name", "utf8", "varchar", 1, false, null, null));
+		columns.add(ColumnDef.build("body", "utf8", "text", 2, false, null, null));
+		return new Table("shard_1", "minimal", "utf8", columns, Arrays.asList("id"));
+	}
+
+	private BitSet bits(int... indexes) {
+		BitSet b = new BitSet();
+		for ( int i : indexes )
+			b.set(i);
+		return b;
+	}
+
+	@Test
+	public void testDecodesSingleColumnsOnDemand() throws Exception {
+		RowMap row = new LazyRowMap("insert", buildTable(), 1L, POSITION,
+			new Serializable[] { 1, "bob".getBytes("UTF-8"), "hello".getBytes("UTF-8") }, bits(0, 1, 2));
+
+		assertEquals(1L, row.getData("id"));
+		assertEquals("bob", row.getData("name"));
+		assertTrue(row.hasData("body"));
+		assertFalse(row.hasData("nope"));
+		assertNull(row.getData("nope"));
+		assertEquals("{\"database\":\"shard_1\",\"table\":\"minimal\",\"pk.id\":1}", row.pkToJson(RowMap.KeyFormat.HASH));
+	}
+
+	@Test
+	public void testMinimalImageUpdate() throws Exception {
+		// binlog_row_image = MINIMAL: the before image only has the PK, the after image only what changed.
+		RowMap row = new LazyRowMap("update", buildTable(), 1L, POSITION,
+			new Serializable[] { "alice".getBytes("UTF-8") }, bits(1),
+			new Serializable[] { 1 }, bits(0));
+
+		assertEquals(1L, row.getData("id"));
+		assertEquals("alice", row.getData("name"));
+		assertFalse(row.hasData("body"));
+		assertEquals(
+			"{\"database\":\"shard_1\",\"table\":\"minimal\",\"type\":\"update\",\"ts\":1,\"data\":{\"name\":\"alice\",\"id\":1}}",
+			row.toJSON()
+		);
+	}
+
+	@Test
+	public void testSkipsExcludedColumns() throws Exception {
+		RowMap row = new LazyRowMap("update", buildTable(), 1L, POSITION,
+			new Serializable[] { 1, "bob".getBytes("UTF-8"), "new".getBytes("UTF-8") }, bits(0, 1, 2),
+			new Serializable[] { 1, "bob".getBytes("UTF-8"), "old".getBytes("UTF-8") }, bits(0, 1, 2));
+
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+		config.excludeColumns.add(Pattern.compile("body"));
+
+		assertEquals(
+			"{\"database\":\"shard_1\",\"table\":\"minimal\",\"type\":\"update\",\"ts\":1,\"data\":{\"id\":1,\"name\":\"bob\"}}",
+			row.toJSON(config)
+		);
+	}
+
+	@Test
+	public void testWritingFromRawValuesMatchesTheDecodedMaps() throws Exception {
+		Table table = buildTable();
+		Serializable[] after = { 1, "bob".getBytes("UTF-8"), null };
+		Serializable[] before = { 1, "robert".getBytes("UTF-8"), "hi".getBytes("UTF-8") };
+
+		RowMap lazy = new LazyRowMap("update", table, 1L, POSITION, after, bits(0, 1, 2), before, bits(0, 1, 2));
+		RowMap decoded = new LazyRowMap("update", table, 1L, POSITION, after, bits(0, 1, 2), before, bits(0, 1, 2));
+		decoded.getData(); // forces the data maps to be built
+
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+		config.includesNulls = true;
+		assertEquals(decoded.toJSON(config), lazy.toJSON(config));
+		assertEquals(
+			"{\"database\":\"shard_1\",\"table\":\"minimal\",\"type\":\"update\",\"ts\":1,"
+				+ "\"data\":{\"id\":1,\"name\":\"bob\",\"body\":null},\"old\":{\"name\":\"robert\",\"body\":\"hi\"}}",
+			lazy.toJSON(config)
+		);
+	}
+
+	@Test
+	public void testPredecodedRowsMatchLazyOnes() throws Exception {
+		Table table = buildTable();
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+		config.excludeColumns.add(Pattern.compile("body"));
+
+		// a full image update, and a MINIMAL one whose PK only shows up in the before image.
+		Serializable[][][] images = {
+			{ { 1, "bob".getBytes("UTF-8"), "new".getBytes("UTF-8") }, { 1, "robert".getBytes("UTF-8"), "old".getBytes("UTF-8") } },
+			{ { "alice".getBytes("UTF-8") }, { 1 } }
+		};
+		BitSet[][] included = { { bits(0, 1, 2), bits(0, 1, 2) }, { bits(1), bits(0) } };
+
+		for ( int i = 0; i < images.length; i++ ) {
+			LazyRowMap lazy = new LazyRowMap("update", table, 1L, POSITION, images[i][0], included[i][0], images[i][1], included[i][1]);
+			LazyRowMap predecoded = new LazyRowMap("update", table, 1L, POSITION, images[i][0], included[i][0], images[i][1], included[i][1]);
+			predecoded.predecode(config.excludeColumns);
+
+			assertEquals(lazy.toJSON(config), predecoded.toJSON(config));
+			assertEquals(lazy.getData("id"), predecoded.getData("id"));
+			// excluded columns aren't predecoded, but are still there to be asked for.
+			assertEquals(lazy.getData("body"), predecoded.getData("body"));
+			assertEquals(lazy.getData(), predecoded.getData());
+			assertEquals(lazy.getOldData(), predecoded.getOldData());
+		}
+	}
+
+	@Test
+	public void testJsonPlanIsRebuiltWhenColumnsChange() throws Exception {
+		Table table = buildTable();
+		TableJsonPlan plan = table.getJsonPlan();
+		table.addColumn(ColumnDef.build("extra", null, "int", 3, true, null, null));
+
+		assertNotSame(plan, table.getJsonPlan());
+		assertEquals("extra", table.getJsonPlan().columnName(3).getValue());
+	}
+
+	@Test
+	public void testExcludedColumnMaskFollowsThePatterns() throws Exception {
+		Table table = buildTable();
+		TableJsonPlan plan = table.getJsonPlan();
+		List<Pattern> excludes = new ArrayList<>();
+
+		assertTrue(plan.excludedColumns(excludes).isEmpty());
+
+		excludes.add(Pattern.compile("na.*"));
+		assertEquals(bits(1), plan.excludedColumns(excludes));
+
+		excludes.add(Pattern.compile("body"));
+		assertEquals(bits(1, 2), plan.excludedColumns(excludes));
+		assertTrue(plan.excludedColumns(Arrays.asList(Pattern.compile("id"))).get(0));
+	}
+
+	@Test
+	public void testUTF8PassthroughMatchesTheDecodedMaps() throws Exception {
+		Table table = buildTable();
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+
+		byte[][] names = {
+			"plain".getBytes("UTF-8"),
+			"quote \" back\\slash\n\t\u0001 caf\u00e9 \u20ac".getBytes("UTF-8"),
+			"outside the bmp: \ud83d\ude00".getBytes("UTF-8"),
+			{ 'b', (byte) 0xC3, 'a', 'd' }, // malformed
+			{ 'b', (byte) 0xFF, 'a', 'd' }  // decodes the same as the one above
+		};
+
+		for ( byte[] before : names ) {
+			for ( byte[] after : names ) {
+				Serializable[] afterImage = { 1, after, "same".getBytes("UTF-8") };
+				Serializable[] beforeImage = { 1, before, "same".getBytes("UTF-8") };
+
+				RowMap lazy = new LazyRowMap("update", table, 1L, POSITION, afterImage, bits(0, 1, 2), beforeImage, bits(0, 1, 2));
+				RowMap decoded = new LazyRowMap("update", table, 1L, POSITION, afterImage, bits(0, 1, 2), beforeImage, bits(0, 1, 2));
+				decoded.getData();
+
+				assertEquals(decoded.toJSON(config), lazy.toJSON(config));
+			}
+		}
+	}
+
+	@Test
+	public void testBinaryColumnsMatchTheDecodedMaps() throws Exception {
+		List<ColumnDef> columns = new ArrayList<>();
+		columns.add(ColumnDef.build("id", null, "int", 0, true, null, null));
+		columns.add(ColumnDef.build("payload", null, "blob", 1, false, null, null));
+		Table table = new Table("shard_1", "blobs", "utf8", columns, Arrays.asList("id"));
+
+		Serializable[] values = { 1, new byte[] { 0, 1, 2, (byte) 0xFE, (byte) 0xFF } };
+		MaxwellOutputConfig config = new MaxwellOutputConfig();
+
+		try {
+			for ( StringColumnDef.BinaryEncoding encoding : StringColumnDef.BinaryEncoding.values() ) {
+				for ( long maxBytes : new long[] { 0, 4 } ) {
+					StringColumnDef.configureBinaryOutput(encoding, maxBytes);
+
+					RowMap lazy = new LazyRowMap("insert", table, 1L, POSITION, values, bits(0, 1));
+					RowMap decoded = new LazyRowMap("insert", table, 1L, POSITION, values, bits(0, 1));
+					decoded.getData();
+
+					assertEquals(decoded.toJSON(config), lazy.toJSON(config));
+				}
+			}
+		} finally {
+			StringColumnDef.configureBinaryOutput(StringColumnDef.BinaryEncoding.BASE64, 0);
+		}
+	}
+
+	@Test
+	public void testRowsKeepTheirTablesCharsetsThroughAnAlter() throws Exception {
+		List<ColumnDef> columns = new ArrayList<>();
+		columns.add(ColumnDef.build("id", null, "int", 0, true, null, null));
+		columns.add(ColumnDef.build("name", "latin1", "varchar", 1, false, null, null));
+		Table table = new Table("shard_1", "latin", "latin1", columns, Arrays.asList("id"));
+
+		RowMap row = new LazyRowMap("insert", table, 1L, POSITION,
+			new Serializable[] { 1, "caf\u00e9".getBytes("ISO-8859-1") }, bits(0, 1));
+
+		// what ALTER TABLE ... CONVERT TO CHARACTER SET utf8 does to its copy of the table.
+		Table altered = table.copy();
+		((StringColumnDef) altered.findColumn("name")).setCharset("utf8");
+
+		assertEquals("latin1", ((StringColumnDef) table.findColumn("name")).getCharset());
+		assertEquals("caf\u00e9", row.getData("name"));
+	}
+}
@@ -3,9 +3,12 @@ package com.zendesk.maxwell.row;
 import com.zendesk.maxwell.TestWithNameLogging;
 import com.zendesk.maxwell.replication.BinlogPosition;
 import com.zendesk.maxwell.replication.Position;
+import com.zendesk.maxwell.util.SegmentedSpillStore;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -27,4 +30,79 @@ public class RowMapBufferTest extends TestWithNameLogging {
 		assertThat(buffer.removeFirst().getTimestamp(), is(2L));
 		assertThat(buffer.removeFirst().getTimestamp(), is(3L));
 	}
+
+	private RowMap buildRow(long i, Position position) {
+		RowMap r = new RowMap("update", "shard_1", "users", 10L + i, Arrays.asList("id"), position);
+		r.setXid(99L);
+		r.putData("id", 1L + i);
+		r.putData("name", "\u00e9mile \ud83d\ude00");
+		r.putData("balance", new BigDecimal("12.50"));
+		r.putData("tags", new ArrayList<>(Arrays.asList("a", "b")));
+		r.putData("doc", new RawJSONString("{\"a\":1}"));
+		r.putData("nothing", null);
+		r.putOldData("name", "emile");
+		return r;
+	}
+
+	@Test
+	public void TestSpilledRowsSurviveTheTripToDisk() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(1);
+		Position position = new Position(new BinlogPosition("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5", "3E11FA47-71CA-11E1-9E33-C80AA9429562:5", 3, "mysql.1"), 12L);
+
+		for ( int i = 0; i < 3; i++ )
+			buffer.add(buildRow(i, position));
+
+		// interleave reads and writes so the file gets emptied and reused.
+		for ( int i = 0; i < 3; i++ ) {
+			RowMap r = buffer.removeFirst();
+			buffer.add(new RowMap("insert", "shard_1", "users", 20L + i, new ArrayList<String>(), position));
+
+			assertThat(r.getPosition(), is(position));
+			assertThat(r.getData("name"), is((Object) "\u00e9mile \ud83d\ude00"));
+			assertThat(r.pkToJson(RowMap.KeyFormat.ARRAY), is(buildRow(i, position).pkToJson(RowMap.KeyFormat.ARRAY)));
+			assertThat(r.toJSON(), is(buildRow(i, position).toJSON()));
+		}
+
+		for ( int i = 0; i < 3; i++ )
+			assertThat(buffer.removeFirst().getTimestamp(), is(20L + i));
+		assertThat(buffer.isEmpty(), is(true));
+	}
+
+	@Test
+	public void TestCloseGivesBackSpilledSpace() throws Exception {
+		Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+		long before = SegmentedSpillStore.getBytesInUse();
+
+		RowMapBuffer buffer = new RowMapBuffer(1, 1);
+		for ( int i = 0; i < 3; i++ )
+			buffer.add(buildRow(i, position));
+		buffer.flushToDisk();
+		assertThat(SegmentedSpillStore.getBytesInUse() > before, is(true));
+
+		buffer.close();
+		assertThat(buffer.isEmpty(), is(true));
+		assertThat(SegmentedSpillStore.getBytesInUse(), is(before));
+	}
+
+	@Test
+	public void TestStreamedCommitMarkerKeepsItsXid() throws Exception {
+		Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+		RowMapBuffer buffer = new RowMapBuffer(2);
+		buffer.setServerId(1L);
+
+		CommitRowMap marker = new CommitRowMap("foo", "bar", 1L, position);
+		marker.setXid(1234L);
+		buffer.add(new RowMap("insert", "foo", "bar", 1L, new ArrayList<String>(), position));
+		buffer.add(marker);
+
+		RowMap r = buffer.removeFirst();
+		assertThat(r.getXid(), is(nullValue()));
+		assertThat(r.isTXCommit(), is(false));
+
+		r = buffer.removeFirst();
+		assertThat(r.getXid(), is(1234L));
+		assertThat(r.getServerId(), is(1L));
+		assertThat(r.isTXCommit(), is(true));
+		assertThat(r.toJSON(), containsString("\"type\":\"commit\",\"ts\":1,\"xid\":1234,\"commit\":true"));
+	}
 }
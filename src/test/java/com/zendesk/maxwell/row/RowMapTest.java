@@ -1,8 +1,13 @@
 package com.zendesk.maxwell.row;
 
+import com.zendesk.maxwell.producer.MaxwellOutputConfig;
+import com.zendesk.maxwell.replication.BinlogPosition;
+import com.zendesk.maxwell.replication.Position;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 
 public class RowMapTest {
@@ -34,4 +39,63 @@ public class RowMapTest {
     Assert.assertEquals("bar", rowMap.getData("foo"));
     Assert.assertEquals("buz", rowMap.getOldData("fiz"));
   }
+
+  @Test
+  public void testToJSONBytesIsUTF8OfToJSON() throws Exception {
+    Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+    RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", 1234567890L, new ArrayList<String>(), position);
+    rowMap.putData("name", "\u00e9mile \u4e2d\u6587");
+
+    MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+    String json = rowMap.toJSON(outputConfig);
+
+    Assert.assertTrue(json.contains("\u00e9mile \u4e2d\u6587"));
+    Assert.assertArrayEquals(json.getBytes("UTF-8"), rowMap.toJSONBytes(outputConfig));
+    Assert.assertArrayEquals(json.getBytes("UTF-8"), rowMap.toJSONByteBuffer(outputConfig).array());
+    Assert.assertNull(new HeartbeatRowMap("maxwell", position).toJSONBytes(outputConfig));
+  }
+
+  @Test
+  public void testKeyAndValueBytesMatchPkToJsonAndToJSON() throws Exception {
+    Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+    RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", 1234567890L, Arrays.asList("id", "Name"), position);
+    rowMap.putData("id", 5);
+    rowMap.putData("Name", "\u00e9mile \u4e2d\u6587");
+
+    MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+    for ( RowMap.KeyFormat format : RowMap.KeyFormat.values() ) {
+      RowMap.KeyAndValue kv = rowMap.toKeyAndValueBytes(format, outputConfig);
+      Assert.assertEquals(rowMap.pkToJson(format), new String(kv.key, "UTF-8"));
+      Assert.assertEquals(rowMap.toJSON(outputConfig), new String(kv.value, "UTF-8"));
+    }
+  }
+
+  @Test
+  public void testKeysOfRowsWithoutAPrimaryKeyAreUnique() throws Exception {
+    Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+    RowMap rowMap = new RowMap("insert", "MyDatabase", "MyTable", 1234567890L, new ArrayList<String>(), position);
+    MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+
+    String first = new String(rowMap.toKeyAndValueBytes(RowMap.KeyFormat.HASH, outputConfig).key, "UTF-8");
+    String second = new String(rowMap.toKeyAndValueBytes(RowMap.KeyFormat.HASH, outputConfig).key, "UTF-8");
+    Assert.assertTrue(first.matches("\\{\"database\":\"MyDatabase\",\"table\":\"MyTable\",\"_uuid\":\"[0-9a-f-]{36}\"\\}"));
+    Assert.assertNotEquals(first, second);
+  }
+
+  @Test
+  public void testCommitRowsRenderToNothingWithoutCommitInfo() throws Exception {
+    Position position = new Position(new BinlogPosition(3, "mysql.1"), 0L);
+    CommitRowMap commit = new CommitRowMap("MyDatabase", "MyTable", 1234567890L, position);
+
+    MaxwellOutputConfig outputConfig = new MaxwellOutputConfig();
+    Assert.assertTrue(commit.toJSON(outputConfig).contains("\"type\":\"commit\""));
+    Assert.assertNotNull(commit.toKeyAndValueBytes(RowMap.KeyFormat.HASH, outputConfig));
+
+    outputConfig.includesCommitInfo = false;
+    Assert.assertFalse(commit.shouldOutput(outputConfig));
+    Assert.assertNull(commit.toJSON(outputConfig));
+    Assert.assertNull(commit.toJSONBytes(outputConfig));
+    Assert.assertNull(commit.toJSONByteBuffer(outputConfig));
+    Assert.assertNull(commit.toKeyAndValueBytes(RowMap.KeyFormat.HASH, outputConfig));
+  }
 }
@@ -0,0 +1,57 @@
+package com.zendesk.maxwell.schema;
+
+import com.zendesk.maxwell.CaseSensitivity;
+import com.zendesk.maxwell.schema.ddl.ResolvedDatabaseDrop;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableAlter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SchemaTest {
+	private Schema buildSchema(CaseSensitivity sensitivity) {
+		Schema schema = new Schema(new ArrayList<Database>(), "utf8", sensitivity);
+		Database db = new Database("Shard_1", "utf8");
+		schema.addDatabase(db);
+		db.buildTable("Users", "utf8");
+		return schema;
+	}
+
+	@Test
+	public void testCaseSensitiveLookups() {
+		Schema schema = buildSchema(CaseSensitivity.CASE_SENSITIVE);
+
+		assertNotNull(schema.findDatabase("Shard_1"));
+		assertNull(schema.findDatabase("shard_1"));
+		assertNotNull(schema.findDatabase("Shard_1").findTable("Users"));
+		assertNull(schema.findDatabase("Shard_1").findTable("users"));
+	}
+
+	@Test
+	public void testCaseInsensitiveLookups() {
+		Schema schema = buildSchema(CaseSensitivity.CONVERT_ON_COMPARE);
+
+		assertNotNull(schema.findDatabase("SHARD_1"));
+		assertNotNull(schema.findDatabase("shard_1").findTable("USERS"));
+	}
+
+	@Test
+	public void testIndexesFollowSchemaChanges() throws Exception {
+		Schema schema = buildSchema(CaseSensitivity.CONVERT_ON_COMPARE);
+		Database db = schema.findDatabase("shard_1");
+		Table users = db.findTable("users");
+
+		Table renamed = users.copy();
+		renamed.name = "Customers";
+		new ResolvedTableAlter("Shard_1", "Users", users, renamed).apply(schema);
+
+		assertNull(db.findTable("users"));
+		assertSame(renamed, db.findTable("customers"));
+
+		new ResolvedDatabaseDrop("Shard_1").apply(schema);
+		assertNull(schema.findDatabase("shard_1"));
+	}
+}
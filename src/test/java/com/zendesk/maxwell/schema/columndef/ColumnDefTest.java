@@ -2,15 +2,19 @@ package com.zendesk.maxwell.schema.columndef;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Random;
 import java.util.TimeZone;
 
 import com.zendesk.maxwell.TestWithNameLogging;
@@ -18,7 +22,15 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.google.code.or.common.util.MySQLConstants;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+import com.zendesk.maxwell.row.RawJSONString;
+import org.apache.commons.codec.binary.Base64;
 
 public class ColumnDefTest extends TestWithNameLogging {
 	private ColumnDef build(String type, boolean signed) {
@@ -35,6 +47,8 @@ public class ColumnDefTest extends TestWithNameLogging {
 
 	@After
 	public void tearDown() throws Exception {
+		StringColumnDef.configureBinaryOutput(StringColumnDef.BinaryEncoding.BASE64, 0);
+		GeometryColumnDef.configureOutput(GeometryColumnDef.GeometryFormat.WKT);
 	}
 
 	@Test
@@ -355,4 +369,75 @@ public class ColumnDefTest extends TestWithNameLogging {
 		assertThat(d.toSQL(bO), is("0"));
 	}
 
+	@Test
+	public void TestBinaryEncodings() {
+		ColumnDef d = build("varbinary", true);
+		assertThat(d, instanceOf(StringColumnDef.class));
+
+		Random random = new Random(1);
+		for ( int length = 0; length < 100; length++ ) {
+			byte[] b = new byte[length];
+			random.nextBytes(b);
+			assertThat((String) d.asJSON(b), is(Base64.encodeBase64String(b)));
+		}
+
+		byte[] b = new byte[] { 0, 1, (byte) 0xAB, (byte) 0xFF };
+		StringColumnDef.configureBinaryOutput(StringColumnDef.BinaryEncoding.HEX, 0);
+		assertThat((String) d.asJSON(b), is("0001abff"));
+
+		StringColumnDef.configureBinaryOutput(StringColumnDef.BinaryEncoding.HEX, 3);
+		assertThat(d.asJSON(b), is(nullValue()));
+		assertThat((String) d.asJSON(new byte[] { 1, 2, 3 }), is("010203"));
+	}
+
+	// how mysql stores a geometry: a 4 byte SRID, then little-endian WKB.
+	private byte[] mysqlGeometry(String wkt) throws com.vividsolutions.jts.io.ParseException {
+		byte[] wkb = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN).write(new WKTReader().read(wkt));
+		byte[] bytes = new byte[wkb.length + 4];
+		System.arraycopy(wkb, 0, bytes, 4, wkb.length);
+		return bytes;
+	}
+
+	private String writeJSON(ColumnDef d, Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonGenerator g = new JsonFactory().createGenerator(out);
+		g.writeStartObject();
+		if ( !d.writeJSON(g, new SerializedString("bar"), value) ) {
+			g.writeFieldName("bar");
+			g.writeObject(d.asJSON(value));
+		}
+		g.writeEndObject();
+		g.close();
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	public void TestGeometryFormats() throws Exception {
+		ColumnDef d = build("geometry", true);
+		assertThat(d, instanceOf(GeometryColumnDef.class));
+
+		byte[] point = mysqlGeometry("POINT (1.5 -2)");
+		assertThat((String) d.asJSON(point), is("POINT (1.5 -2)"));
+
+		GeometryColumnDef.configureOutput(GeometryColumnDef.GeometryFormat.WKB_HEX);
+		assertThat((String) d.asJSON(point), is("0101000000000000000000f83f00000000000000c0"));
+		assertThat(writeJSON(d, point), is("{\"bar\":\"0101000000000000000000f83f00000000000000c0\"}"));
+
+		GeometryColumnDef.configureOutput(GeometryColumnDef.GeometryFormat.GEOJSON);
+		String[][] cases = {
+			{ "POINT (1.5 -2)", "{\"type\":\"Point\",\"coordinates\":[1.5,-2.0]}" },
+			{ "LINESTRING (0 0, 1 1)", "{\"type\":\"LineString\",\"coordinates\":[[0.0,0.0],[1.0,1.0]]}" },
+			{ "POLYGON ((0 0, 0 1, 1 1, 0 0))", "{\"type\":\"Polygon\",\"coordinates\":[[[0.0,0.0],[0.0,1.0],[1.0,1.0],[0.0,0.0]]]}" },
+			{ "MULTIPOINT ((1 2), (3 4))", "{\"type\":\"MultiPoint\",\"coordinates\":[[1.0,2.0],[3.0,4.0]]}" },
+			{ "GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (0 0, 1 1))",
+				"{\"type\":\"GeometryCollection\",\"geometries\":[{\"type\":\"Point\",\"coordinates\":[1.0,2.0]},"
+					+ "{\"type\":\"LineString\",\"coordinates\":[[0.0,0.0],[1.0,1.0]]}]}" }
+		};
+
+		for ( String[] c : cases ) {
+			byte[] geometry = mysqlGeometry(c[0]);
+			assertThat(writeJSON(d, geometry), is("{\"bar\":" + c[1] + "}"));
+			assertThat(((RawJSONString) d.asJSON(geometry)).json, is(c[1]));
+		}
+	}
 }
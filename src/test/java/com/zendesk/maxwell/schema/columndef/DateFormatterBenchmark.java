@@ -0,0 +1,106 @@
+package com.zendesk.maxwell.schema.columndef;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+
+/*
+   rough throughput numbers for DateFormatter, next to the shared, synchronized
+   SimpleDateFormat it replaced.  Not a unit test; run it by hand:
+
+     mvn test-compile
+     java -cp target/classes:target/test-classes \
+       com.zendesk.maxwell.schema.columndef.DateFormatterBenchmark [threads] [values per thread]
+ */
+public class DateFormatterBenchmark {
+	private static final SimpleDateFormat legacyFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	static {
+		legacyFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+
+	private static String legacyFormatDateTime(long micros) {
+		Timestamp t = new Timestamp(micros / 1000);
+		t.setNanos((int) (micros % 1000000) * 1000);
+
+		String s;
+		synchronized(legacyFormatter) {
+			s = legacyFormatter.format(t);
+		}
+		return s + "." + String.format("%06d", t.getNanos() / 1000);
+	}
+
+	private interface Formatter {
+		String format(long micros);
+	}
+
+	private static long run(final Formatter formatter, int threads, final long[] values) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+
+		for ( int t = 0; t < threads; t++ ) {
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						int length = 0;
+						for ( long v : values )
+							length += formatter.format(v).length();
+						if ( length == 0 )
+							System.out.println("unreachable; keeps the loop from being optimized away");
+					} catch ( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		return System.nanoTime() - begin;
+	}
+
+	private static void report(String name, Formatter formatter, int threads, long[] values) throws InterruptedException {
+		run(formatter, threads, values); // warm up
+
+		long elapsed = run(formatter, threads, values);
+		long formatted = (long) threads * values.length;
+		System.out.printf("%-28s %4d threads  %8.1f ns/value/thread  %6.2f M values/s%n",
+			name, threads, (double) elapsed / values.length, formatted * 1000.0 / elapsed);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+		Random random = new Random(42);
+		long[] values = new long[count];
+		for ( int i = 0; i < count; i++ )
+			values[i] = (long) (random.nextDouble() * 253402300799999999L); // 1970 .. 9999
+
+		Formatter legacy = new Formatter() {
+			public String format(long micros) { return legacyFormatDateTime(micros); }
+		};
+		Formatter date = new Formatter() {
+			public String format(long micros) { return DateFormatter.formatDate(micros); }
+		};
+		Formatter dateTime = new Formatter() {
+			public String format(long micros) { return DateFormatter.formatDateTime(micros, 6L); }
+		};
+		Formatter time = new Formatter() {
+			public String format(long micros) { return DateFormatter.formatTime(micros % 86400000000L, 6L); }
+		};
+
+		for ( int n : new int[] { 1, threads } ) {
+			report("synchronized datetime(6)", legacy, n, values);
+			report("DateFormatter datetime(6)", dateTime, n, values);
+			report("DateFormatter date", date, n, values);
+			report("DateFormatter time(6)", time, n, values);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.zendesk.maxwell.schema.columndef;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DateFormatterTest {
+	// 1583-01-01 .. 9999-12-31, in UTC micros
+	private static final long MIN_MICROS = -12212553600000000L;
+	private static final long MAX_MICROS = 253402300799999999L;
+
+	private TimeZone defaultTimeZone;
+
+	@Before
+	public void saveTimeZone() {
+		defaultTimeZone = TimeZone.getDefault();
+	}
+
+	@After
+	public void restoreTimeZone() {
+		TimeZone.setDefault(defaultTimeZone);
+	}
+
+	// what DateFormatter used to do with every Long.
+	private static String legacyFormat(String format, long micros, int nanos, long digits) {
+		SimpleDateFormat formatter = new SimpleDateFormat(format);
+		formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Timestamp t = new Timestamp(micros / 1000);
+		t.setNanos(nanos);
+		return legacyFraction(formatter.format(t), nanos, digits);
+	}
+
+	private static String legacyFraction(String value, int nanos, long digits) {
+		if ( digits == 0 )
+			return value;
+		int fractional = nanos / (int) Math.pow(10, 6 + 3 - digits);
+		return value + "." + String.format("%0" + digits + "d", fractional);
+	}
+
+	private static long randomMicros(Random random) {
+		long micros = MIN_MICROS + (long) (random.nextDouble() * (MAX_MICROS - MIN_MICROS));
+		// plenty of values with trailing zeros and on day boundaries, too.
+		switch ( random.nextInt(4) ) {
+			case 0: return micros - micros % 1000000;
+			case 1: return micros - micros % 86400000000L;
+			default: return micros;
+		}
+	}
+
+	@Test
+	public void testFormatsLikeSimpleDateFormat() {
+		Random random = new Random(1234);
+		for ( int i = 0; i < 100000; i++ ) {
+			long micros = randomMicros(random);
+			if ( micros < 0 && micros % 1000000 != 0 )
+				continue; // Timestamp#setNanos used to throw on these.
+
+			int nanos = (int) (micros % 1000000) * 1000;
+			long digits = random.nextInt(7);
+
+			assertEquals(legacyFormat("yyyy-MM-dd", micros, 0, 0), DateFormatter.formatDate(micros));
+			assertEquals(legacyFormat("yyyy-MM-dd HH:mm:ss", micros, nanos, digits), DateFormatter.formatDateTime(micros, digits));
+		}
+	}
+
+	@Test
+	public void testFormatsPre1970FractionsWithoutThrowing() {
+		assertEquals("1969-12-31 23:59:59.500", DateFormatter.formatDateTime(-500000L, 3L));
+		assertEquals("1969-12-31 23:59:58.999999", DateFormatter.formatDateTime(-1000001L, 6L));
+	}
+
+	@Test
+	public void testJulianDatesStillGoThroughTheCalendar() {
+		// the connector hands us 1500-03-01 computed on the julian calendar.
+		GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(1500, 2, 1);
+		assertEquals("1500-03-01", DateFormatter.formatDate(calendar.getTimeInMillis() * 1000));
+
+		calendar.set(900, 2, 1);
+		assertNull(DateFormatter.formatDate(calendar.getTimeInMillis() * 1000));
+	}
+
+	@Test
+	public void testTimeIsShownInTheDefaultTimezone() {
+		for ( String zone : new String[] { "UTC", "America/Los_Angeles", "Asia/Kolkata" } ) {
+			TimeZone.setDefault(TimeZone.getTimeZone(zone));
+
+			Random random = new Random(4321);
+			for ( int i = 0; i < 10000; i++ ) {
+				long micros = (long) (random.nextDouble() * 86400000000L);
+				long digits = random.nextInt(7);
+
+				String expected = legacyFraction(String.valueOf(new Time(micros / 1000)), (int) (micros % 1000000) * 1000, digits);
+				assertEquals(expected, DateFormatter.formatTime(micros, digits));
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class RingBufferTest {
+	@Test
+	public void testRoundsCapacityUpToPowerOfTwo() {
+		assertThat(new RingBuffer<Integer>(20, RingBuffer.WaitStrategy.PARK).capacity(), equalTo(32));
+		assertThat(new RingBuffer<Integer>(1, RingBuffer.WaitStrategy.PARK).capacity(), equalTo(1));
+	}
+
+	@Test
+	public void testOfferTimesOutWhenFull() throws Exception {
+		RingBuffer<Integer> buffer = new RingBuffer<>(2, RingBuffer.WaitStrategy.YIELD);
+
+		assertThat(buffer.offer(1, 10, TimeUnit.MILLISECONDS), equalTo(true));
+		assertThat(buffer.offer(2, 10, TimeUnit.MILLISECONDS), equalTo(true));
+		assertThat(buffer.offer(3, 10, TimeUnit.MILLISECONDS), equalTo(false));
+
+		List<Integer> out = new ArrayList<>();
+		assertThat(buffer.drainTo(out, 10, 10, TimeUnit.MILLISECONDS), equalTo(2));
+		assertThat(buffer.drainTo(out, 10, 10, TimeUnit.MILLISECONDS), equalTo(0));
+		assertThat(buffer.offer(3, 10, TimeUnit.MILLISECONDS), equalTo(true));
+	}
+
+	@Test
+	public void testPreservesOrderAcrossThreads() throws Exception {
+		final int count = 100000;
+		final RingBuffer<Integer> buffer = new RingBuffer<>(16, RingBuffer.WaitStrategy.PARK);
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for ( int i = 0; i < count; i++ ) {
+						while ( !buffer.offer(i, 100, TimeUnit.MILLISECONDS) ) { }
+					}
+				} catch ( InterruptedException e ) { }
+			}
+		});
+		producer.start();
+
+		List<Integer> out = new ArrayList<>(count);
+		while ( out.size() < count )
+			buffer.drainTo(out, 8, 100, TimeUnit.MILLISECONDS);
+
+		producer.join();
+
+		for ( int i = 0; i < count; i++ )
+			assertThat(out.get(i), equalTo(i));
+	}
+
+	/* wait for `t` to park, so whatever we do next has to wake it */
+	private static void awaitParked(Thread t) throws InterruptedException {
+		while ( t.getState() != Thread.State.TIMED_WAITING )
+			Thread.sleep(1);
+	}
+
+	@Test(timeout = 10000)
+	public void testParkedConsumerIsWokenByOffer() throws Exception {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(4, RingBuffer.WaitStrategy.PARK);
+		final List<Integer> out = new ArrayList<>();
+
+		Thread consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					buffer.drainTo(out, 4, 60, TimeUnit.SECONDS);
+				} catch ( InterruptedException e ) { }
+			}
+		});
+		consumer.start();
+		awaitParked(consumer);
+
+		assertThat(buffer.offer(1, 10, TimeUnit.MILLISECONDS), equalTo(true));
+		consumer.join();
+		assertThat(out.get(0), equalTo(1));
+	}
+
+	@Test(timeout = 10000)
+	public void testParkedProducerIsWokenByDrain() throws Exception {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(1, RingBuffer.WaitStrategy.PARK);
+		buffer.offer(1, 10, TimeUnit.MILLISECONDS);
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					buffer.offer(2, 60, TimeUnit.SECONDS);
+				} catch ( InterruptedException e ) { }
+			}
+		});
+		producer.start();
+		awaitParked(producer);
+
+		List<Integer> out = new ArrayList<>();
+		assertThat(buffer.drainTo(out, 4, 10, TimeUnit.MILLISECONDS), equalTo(1));
+		producer.join();
+		assertThat(buffer.drainTo(out, 4, 10, TimeUnit.MILLISECONDS), equalTo(1));
+		assertThat(out.get(1), equalTo(2));
+	}
+}
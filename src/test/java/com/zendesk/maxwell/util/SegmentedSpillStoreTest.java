@@ -0,0 +1,99 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class SegmentedSpillStoreTest {
+	@After
+	public void tearDown() {
+		SegmentedSpillStore.configure(null, 0);
+	}
+
+	private static ByteBuffer bytes(int from, int count) {
+		ByteBuffer b = ByteBuffer.allocate(count);
+		for ( int i = 0; i < count; i++ )
+			b.put((byte) (from + i));
+		b.flip();
+		return b;
+	}
+
+	private static void assertBytes(ByteBuffer b, int from, int count) {
+		assertEquals(count, b.remaining());
+		for ( int i = 0; i < count; i++ )
+			assertEquals((byte) (from + i), b.get());
+	}
+
+	@Test
+	public void testReadsBackAcrossSegmentsAndRecyclesThem() throws Exception {
+		long before = SegmentedSpillStore.getBytesInUse();
+		SegmentedSpillStore store = new SegmentedSpillStore(64);
+
+		for ( int round = 0; round < 10; round++ ) {
+			store.write(bytes(round, 100));
+
+			ByteBuffer out = ByteBuffer.allocate(100);
+			assertEquals(100, store.read(out));
+			out.flip();
+			assertBytes(out, round, 100);
+		}
+
+		// reading keeps up with writing, so we never need more than a couple of live segments plus the spare.
+		assertEquals(true, SegmentedSpillStore.getBytesInUse() - before <= 3 * 64);
+		assertEquals(0, store.read(ByteBuffer.allocate(1)));
+
+		store.close();
+		assertEquals(before, SegmentedSpillStore.getBytesInUse());
+	}
+
+	@Test
+	public void testQuota() throws Exception {
+		SegmentedSpillStore.configure(null, SegmentedSpillStore.getBytesInUse() + 128);
+		SegmentedSpillStore store = new SegmentedSpillStore(64);
+		store.write(bytes(0, 128));
+
+		try {
+			store.write(bytes(0, 1));
+			fail("expected the quota to be enforced");
+		} catch ( IOException e ) { }
+
+		store.close();
+	}
+
+	private static int mappingsUnder(File dir) throws IOException {
+		int n = 0;
+		for ( String line : Files.readAllLines(new File("/proc/self/maps").toPath(), StandardCharsets.UTF_8) )
+			if ( line.contains(dir.getPath()) )
+				n++;
+		return n;
+	}
+
+	@Test
+	public void testReleasedSegmentsAreUnmapped() throws Exception {
+		assumeTrue(new File("/proc/self/maps").canRead());
+
+		File dir = Files.createTempDirectory("maxwell-spill-test").toFile().getCanonicalFile();
+		SegmentedSpillStore.configure(dir, 0);
+		SegmentedSpillStore store = new SegmentedSpillStore(4096);
+
+		store.write(bytes(0, 3 * 4096));
+		assertEquals(3, mappingsUnder(dir));
+
+		// reading through keeps the first segment as a spare and releases the second.
+		assertEquals(3 * 4096, store.read(ByteBuffer.allocate(3 * 4096)));
+		assertEquals(2, mappingsUnder(dir));
+
+		store.close();
+		assertEquals(0, mappingsUnder(dir));
+		dir.delete();
+	}
+}
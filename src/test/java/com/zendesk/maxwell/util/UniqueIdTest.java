@@ -0,0 +1,26 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UniqueIdTest {
+	@Test
+	public void testIdsAreDistinctVersion4UUIDs() {
+		Set<String> seen = new HashSet<>();
+		for ( int i = 0; i < 100000; i++ ) {
+			String id = UniqueId.next();
+			UUID uuid = UUID.fromString(id);
+
+			assertEquals(id, uuid.toString());
+			assertEquals(4, uuid.version());
+			assertEquals(2, uuid.variant());
+			assertTrue(seen.add(id));
+		}
+	}
+}